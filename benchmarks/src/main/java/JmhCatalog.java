@@ -0,0 +1,51 @@
+import java.util.List;
+
+import moviecatalog.jmh.Catalog;
+
+/**
+ * Реалізація moviecatalog.jmh.Catalog поверх BoxOfficeGuideForMovies. Лежить у пакеті
+ * за замовчуванням, щоб викликати керівництво напряму; бенчмарки створюють її
+ * через Catalog.create.
+ */
+public final class JmhCatalog implements Catalog {
+    private final BoxOfficeGuideForMovies catalog;
+
+    public JmhCatalog(int expectedSize) {
+        this.catalog = new BoxOfficeGuideForMovies(expectedSize);
+    }
+
+    @Override
+    public void addMovie(String title, String director, String genre, int yearReleased, double boxOfficeEarnings) {
+        catalog.addMovie(title, director, genre, yearReleased, boxOfficeEarnings);
+    }
+
+    @Override
+    public Object findMovieByTitle(String title) {
+        return catalog.findMovieByTitle(title);
+    }
+
+    @Override
+    public List<?> getAllMoviesSortedByBoxOfficeEarnings() {
+        return catalog.getAllMoviesSortedByBoxOfficeEarnings();
+    }
+
+    @Override
+    public void saveToFile(String filename) {
+        catalog.saveToFile(filename);
+    }
+
+    @Override
+    public void saveToJsonFile(String filename) {
+        catalog.saveToJsonFile(filename);
+    }
+
+    @Override
+    public void loadFromFile(String filename) {
+        catalog.loadFromFile(filename);
+    }
+
+    @Override
+    public void loadFromJsonFile(String filename) {
+        catalog.loadFromJsonFile(filename);
+    }
+}
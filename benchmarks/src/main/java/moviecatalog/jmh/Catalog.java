@@ -0,0 +1,58 @@
+package moviecatalog.jmh;
+
+import java.lang.reflect.Constructor;
+import java.util.List;
+
+/**
+ * Операції BoxOfficeGuideForMovies, які вимірюють бенчмарки. Класи керівництва
+ * лежать у пакеті за замовчуванням, а JMH вимагає іменованого пакета, тож
+ * бенчмарки звертаються до керівництва через цей інтерфейс. Його реалізує
+ * JmhCatalog з пакета за замовчуванням; виклики мономорфні, тож JIT вбудовує їх.
+ */
+public interface Catalog {
+    /**
+     * Створює порожнє керівництво.
+     *
+     * @param expectedSize очікувана кількість фільмів
+     * @return нове керівництво
+     */
+    static Catalog create(int expectedSize) {
+        try {
+            return Implementation.CONSTRUCTOR.newInstance(expectedSize);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create JmhCatalog", e);
+        }
+    }
+
+    void addMovie(String title, String director, String genre, int yearReleased, double boxOfficeEarnings);
+
+    Object findMovieByTitle(String title);
+
+    List<?> getAllMoviesSortedByBoxOfficeEarnings();
+
+    void saveToFile(String filename);
+
+    void saveToJsonFile(String filename);
+
+    void loadFromFile(String filename);
+
+    void loadFromJsonFile(String filename);
+
+    /**
+     * Конструктор реалізації з пакета за замовчуванням, знайдений один раз.
+     */
+    final class Implementation {
+        private static final Constructor<? extends Catalog> CONSTRUCTOR;
+
+        static {
+            try {
+                CONSTRUCTOR = Class.forName("JmhCatalog").asSubclass(Catalog.class).getConstructor(int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private Implementation() {
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package moviecatalog.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Бенчмарки JMH основних операцій BoxOfficeGuideForMovies: заповнення каталогу
+ * через addMovie, findMovieByTitle, getAllMoviesSortedByBoxOfficeEarnings,
+ * saveToFile, saveToJsonFile, loadFromFile і loadFromJsonFile для кожного розміру
+ * каталогу і розподілу даних. Дані генеруються так само, як у MovieCatalogBenchmark.
+ * <p>
+ * Приклад: java -jar target/benchmarks.jar MovieCatalogJmh -p size=1000,100000 -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 2, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MovieCatalogJmh {
+    /** Кількість режисерів і жанрів у згенерованих даних. */
+    private static final int DIRECTORS = 10_000;
+    private static final int GENRES = 30;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    /**
+     * Рівномірний розподіл: режисери, жанри, роки і збори вибираються рівноймовірно.
+     * Скошений: кілька режисерів і жанрів мають більшість фільмів, збори мають
+     * логнормальний розподіл з довгим хвостом, а пошук частіше звертається до "гарячих" назв.
+     */
+    @Param({"uniform", "skewed"})
+    private String distribution;
+
+    private String[] titles;
+    private String[] directors;
+    private String[] genres;
+    private int[] years;
+    private double[] earnings;
+    private int[] lookups;
+    private int nextLookup;
+
+    private Catalog catalog;
+    private Path directory;
+    private String csv;
+    private String json;
+    private String csvOut;
+    private String jsonOut;
+
+    @Setup
+    public void setUp() throws IOException {
+        boolean skewed = switch (distribution) {
+            case "uniform" -> false;
+            case "skewed" -> true;
+            default -> throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        };
+        titles = new String[size];
+        directors = new String[size];
+        genres = new String[size];
+        years = new int[size];
+        earnings = new double[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            titles[i] = "Movie " + i;
+            directors[i] = "Director " + pick(random, DIRECTORS, skewed);
+            genres[i] = "Genre " + pick(random, GENRES, skewed);
+            years[i] = 1950 + random.nextInt(75);
+            earnings[i] = skewed ? Math.rint(Math.exp(16 + 1.5 * random.nextGaussian()))
+                    : random.nextInt(300_000_000);
+        }
+        Random lookupRandom = new Random(7);
+        lookups = new int[size];
+        Arrays.setAll(lookups, i -> pick(lookupRandom, size, skewed));
+
+        catalog = fill();
+        directory = Files.createTempDirectory("movie-jmh");
+        csv = directory.resolve("movies.csv").toString();
+        json = directory.resolve("movies.json").toString();
+        csvOut = directory.resolve("saved.csv").toString();
+        jsonOut = directory.resolve("saved.json").toString();
+        catalog.saveToFile(csv);
+        catalog.saveToJsonFile(json);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (String file : new String[] {csv, json, csvOut, jsonOut}) {
+            Files.deleteIfExists(Path.of(file));
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static int pick(Random random, int bound, boolean skewed) {
+        if (!skewed) {
+            return random.nextInt(bound);
+        }
+        double u = random.nextDouble();
+        return (int) (bound * u * u * u);
+    }
+
+    private Catalog fill() {
+        Catalog filled = Catalog.create(size);
+        for (int i = 0; i < size; i++) {
+            filled.addMovie(titles[i], directors[i], genres[i], years[i], earnings[i]);
+        }
+        return filled;
+    }
+
+    /**
+     * Заповнює порожній каталог size фільмами; час одного addMovie - результат, поділений на size.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Catalog addMovies() {
+        return fill();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object findMovieByTitle() {
+        int index = lookups[nextLookup];
+        if (++nextLookup == lookups.length) {
+            nextLookup = 0;
+        }
+        return catalog.findMovieByTitle(titles[index]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object getAllMoviesSortedByBoxOfficeEarnings() {
+        return catalog.getAllMoviesSortedByBoxOfficeEarnings();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveToFile() {
+        catalog.saveToFile(csvOut);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveToJsonFile() {
+        catalog.saveToJsonFile(jsonOut);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Catalog loadFromFile() {
+        Catalog loaded = Catalog.create(0);
+        loaded.loadFromFile(csv);
+        return loaded;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Catalog loadFromJsonFile() {
+        Catalog loaded = Catalog.create(0);
+        loaded.loadFromJsonFile(json);
+        return loaded;
+    }
+}
@@ -1,9 +1,21 @@
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Клас, який представляє керівництво касовими зборами для фільмів.
@@ -12,207 +24,1855 @@ public class BoxOfficeGuideForMovies {
     /** Мапа, що зберігає дані про фільми за їхніми назвами. */
     private final Map<String, MovieData> movieMap;
 
+    /**
+     * Порядок рейтингу: за спаданням касових зборів, за однакових зборів - за назвою.
+     */
+    private static final Comparator<MovieData> EARNINGS_ORDER = Comparator
+            .comparingDouble(MovieData::boxOfficeEarnings).reversed()
+            .thenComparing(MovieData::title);
+
+    /** Індекс фільмів, упорядкований за касовими зборами, який підтримується при кожній зміні. */
+    private final NavigableSet<MovieData> earningsIndex;
+
+    /** Словник режисерів: усі фільми посилаються на один екземпляр імені режисера. */
+    private final StringDictionary directors = new StringDictionary();
+
+    /** Словник жанрів: усі фільми посилаються на один екземпляр назви жанру. */
+    private final StringDictionary genres = new StringDictionary();
+
+    /** Індекс фільмів за кодом режисера у словнику. */
+    private final Map<Integer, Set<MovieData>> directorIndex;
+
+    /** Індекс фільмів за кодом жанру у словнику. */
+    private final Map<Integer, Set<MovieData>> genreIndex;
+
+    /** Індекс фільмів за роком виходу, упорядкований за роками. */
+    private final NavigableMap<Integer, Set<MovieData>> yearIndex;
+
+    /** Статистика касових зборів груп індексу режисерів. */
+    private final Map<Integer, EarningsAccumulator> directorStats;
+
+    /** Статистика касових зборів груп індексу жанрів. */
+    private final Map<Integer, EarningsAccumulator> genreStats;
+
+    /** Статистика касових зборів груп індексу років. */
+    private final Map<Integer, EarningsAccumulator> yearStats;
+
+    /** Чи працює керівництво в паралельному режимі. */
+    private final boolean concurrent;
+
+    /**
+     * Чи підтримуються індекси на купі. У позакупному режимі їх немає, а пошук
+     * за полями і рейтинг виконуються переглядом усіх фільмів.
+     */
+    private final boolean indexed;
+
+    /** Кількість смуг блокування для змін у паралельному режимі. */
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Смуги блокування: зміни фільму виконуються під блокуванням смуги його назви,
+     * тож додавання і видалення різних фільмів не заважають одне одному.
+     */
+    private final Object[] stripes;
+
+    /** Фільми в порядку додавання для паралельного режиму; null, якщо порядок забезпечує movieMap. */
+    private final ConcurrentNavigableMap<Long, MovieData> insertionOrder;
+
+    /** Порядкові номери додавання фільмів за назвами для insertionOrder. */
+    private final Map<String, Long> insertionSequence;
+
+    /** Лічильник порядкових номерів додавання. */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Поточний знімок стану, який серіалізується у фоні; null, якщо знімка немає.
+     * Поки він є, видалення фільмів, доданих до початку знімка, зберігають
+     * видалений фільм у знімку (копіювання під час запису).
+     */
+    private volatile SnapshotCapture snapshotCapture;
+
+    /** Дозволяє одночасно лише один знімок стану. */
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /** Метрики операцій; null, якщо збирання метрик вимкнене. */
+    private volatile CatalogMetrics metrics;
+
+    /** Журнал попереднього запису стійкого режиму; null, якщо керівництво не стійке. */
+    private volatile WriteAheadLog writeAheadLog;
+
+    /** Відкриті індекси файлів з фільмами за іменами файлів. */
+    private final Map<String, MovieFileIndex> fileIndexes = new ConcurrentHashMap<>();
+
+    /** Кеш результатів пошуку фільмів у файлах; вимкнений, доки не задано його розмір. */
+    private final MovieLookupCache fileLookupCache = new MovieLookupCache();
+
+    /** Чи використовувати індекс назв для пошуку фільмів у файлі. */
+    private boolean fileIndexEnabled;
+
+    /** Типова кількість надгробків у файлі, після якої файл ущільнюється. */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    /** Чи видаляти фільми з файлу дописуванням надгробка замість перезапису файлу. */
+    private boolean tombstoneDeletes;
+
+    /** Кількість надгробків у файлі, після якої файл ущільнюється. */
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    /** Кількість дописаних надгробків за іменами файлів з часу останнього ущільнення. */
+    private final Map<String, Integer> pendingTombstones = new ConcurrentHashMap<>();
+
     /**
      * Конструктор, який створює новий об'єкт BoxOfficeGuideForMovies.
      */
     public BoxOfficeGuideForMovies() {
-        this.movieMap = new LinkedHashMap<>();
+        this(false, true, 0);
+    }
+
+    /**
+     * Створює керівництво, місткість якого одразу розрахована на задану кількість
+     * фільмів, тож під час великого завантаження мапа не перебудовується.
+     * 
+     * @param expectedSize очікувана кількість фільмів
+     */
+    public BoxOfficeGuideForMovies(int expectedSize) {
+        this(false, true, expectedSize);
+    }
+
+    /**
+     * Створює керівництво для спільного використання кількома потоками.
+     * Читання не блокуються, а зміни різних фільмів виконуються паралельно.
+     * 
+     * @param preserveInsertionOrder чи зберігати порядок додавання фільмів
+     *                               для виводу та збереження у файли
+     * @return нове потокобезпечне керівництво
+     */
+    public static BoxOfficeGuideForMovies concurrent(boolean preserveInsertionOrder) {
+        return new BoxOfficeGuideForMovies(true, preserveInsertionOrder, 0);
+    }
+
+    /**
+     * Створює потокобезпечне керівництво з місткістю на задану кількість фільмів.
+     * 
+     * @param preserveInsertionOrder чи зберігати порядок додавання фільмів
+     *                               для виводу та збереження у файли
+     * @param expectedSize           очікувана кількість фільмів
+     * @return нове потокобезпечне керівництво
+     * @see #concurrent(boolean)
+     */
+    public static BoxOfficeGuideForMovies concurrent(boolean preserveInsertionOrder, int expectedSize) {
+        return new BoxOfficeGuideForMovies(true, preserveInsertionOrder, expectedSize);
+    }
+
+    /**
+     * Створює керівництво, яке зберігає фільми поза купою Java, у прямих буферах,
+     * разом з хеш-індексом назв. Обсяг купи і паузи збирача сміття не ростуть
+     * разом із каталогом; об'єкти MovieData створюються лише під час читання.
+     * Індексів на купі немає, тож пошук за режисером, жанром чи роком і рейтинг
+     * за касовими зборами переглядають усі фільми. Обсяг прямої пам'яті
+     * обмежує параметр JVM -XX:MaxDirectMemorySize.
+     * 
+     * @param expectedSize очікувана кількість фільмів
+     * @return нове керівництво з позакупним сховищем, не потокобезпечне
+     */
+    public static BoxOfficeGuideForMovies offHeap(int expectedSize) {
+        return new BoxOfficeGuideForMovies(new OffHeapMovieMap(expectedSize));
+    }
+
+    /**
+     * Створює керівництво, яке зберігає фільми стовпцями масивів примітивів:
+     * рік - int[], касові збори - double[], режисер і жанр - кодами словників
+     * в int[], а назви - String[] з хеш-індексом номерів рядків. На фільм
+     * припадає кілька десятків байтів купи замість об'єкта MovieData, вузла мапи
+     * та вузлів індексів, а об'єкти MovieData створюються лише під час читання.
+     * Пошук за режисером, жанром чи роком і статистика касових зборів проходять
+     * стовпцями без створення об'єктів; рейтинг за касовими зборами переглядає
+     * всі фільми, як у позакупному режимі.
+     * 
+     * @param expectedSize очікувана кількість фільмів
+     * @return нове керівництво зі стовпцевим сховищем, не потокобезпечне
+     */
+    public static BoxOfficeGuideForMovies columnar(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must be non-negative");
+        }
+        return new BoxOfficeGuideForMovies(new ColumnarMovieMap(expectedSize));
+    }
+
+    /**
+     * Відкриває керівництво над образом каталогу, записаним saveToMappedFile.
+     * Файл відображається в пам'ять без розбору, тож час відкриття не залежить
+     * від кількості фільмів: findMovieByTitle шукає в хеш-таблиці образу, а рейтинг
+     * за касовими зборами читається з образу вже впорядкованим. Об'єкти MovieData
+     * створюються лише для прочитаних фільмів. Зміни зберігаються на купі поверх
+     * образу; пошук за режисером, жанром чи роком переглядає всі фільми, як
+     * у позакупному режимі.
+     * 
+     * @param filename ім'я файлу образу; його не можна змінювати, поки керівництво відкрите
+     * @return нове керівництво над образом, не потокобезпечне
+     * @throws IOException якщо файл не є образом каталогу або його не вдалося відобразити
+     */
+    public static BoxOfficeGuideForMovies mapped(String filename) throws IOException {
+        return new BoxOfficeGuideForMovies(new MappedMovieMap(MappedMovieImage.open(Path.of(filename)),
+                EARNINGS_ORDER));
+    }
+
+    /**
+     * Створює стійке потокобезпечне керівництво, стан якого зберігається в каталозі
+     * журналу. Кожне додавання й видалення дописує компактний запис до журналу
+     * попереднього запису і повертається лише після того, як запис потрапив на диск;
+     * одночасні зміни з різних потоків фіксуються однією спільною операцією fsync.
+     * Під час відкриття завантажується останній знімок і повторюється решта журналу.
+     * Метод checkpoint() зберігає новий знімок і видаляє застарілі частини журналу.
+     * 
+     * @param directory каталог журналу; створюється, якщо його немає
+     * @return керівництво зі станом, відновленим з каталогу
+     * @throws IOException якщо знімок не вдалося прочитати або журнал не вдалося відкрити
+     */
+    public static BoxOfficeGuideForMovies durable(String directory) throws IOException {
+        BoxOfficeGuideForMovies catalog = concurrent(true);
+        catalog.writeAheadLog = WriteAheadLog.recover(Path.of(directory), catalog::insertMovieIfAbsent,
+                catalog::deleteMovieIfPresent);
+        return catalog;
+    }
+
+    private BoxOfficeGuideForMovies(boolean concurrent, boolean preserveInsertionOrder, int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must be non-negative");
+        }
+        this.concurrent = concurrent;
+        this.indexed = true;
+        if (concurrent) {
+            this.movieMap = new ConcurrentHashMap<>(expectedSize);
+            this.earningsIndex = new ConcurrentSkipListSet<>(EARNINGS_ORDER);
+            this.directorIndex = new ConcurrentHashMap<>();
+            this.genreIndex = new ConcurrentHashMap<>();
+            this.yearIndex = new ConcurrentSkipListMap<>();
+            this.directorStats = new ConcurrentHashMap<>();
+            this.genreStats = new ConcurrentHashMap<>();
+            this.yearStats = new ConcurrentHashMap<>();
+            this.stripes = new Object[LOCK_STRIPES];
+            this.insertionOrder = preserveInsertionOrder ? new ConcurrentSkipListMap<>() : null;
+            this.insertionSequence = preserveInsertionOrder ? new ConcurrentHashMap<>(expectedSize) : null;
+        } else {
+            this.movieMap = new LinkedHashMap<>(hashCapacity(expectedSize));
+            this.earningsIndex = new TreeSet<>(EARNINGS_ORDER);
+            this.directorIndex = new HashMap<>();
+            this.genreIndex = new HashMap<>();
+            this.yearIndex = new TreeMap<>();
+            this.directorStats = new HashMap<>();
+            this.genreStats = new HashMap<>();
+            this.yearStats = new HashMap<>();
+            this.stripes = new Object[1];
+            this.insertionOrder = null;
+            this.insertionSequence = null;
+        }
+        Arrays.setAll(stripes, i -> new Object());
+    }
+
+    /**
+     * Місткість HashMap, за якої expectedSize елементів поміщаються без перебудови.
+     */
+    private static int hashCapacity(int expectedSize) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(expectedSize / 0.75));
+    }
+
+    private BoxOfficeGuideForMovies(Map<String, MovieData> movieMap) {
+        this.concurrent = false;
+        this.indexed = false;
+        this.movieMap = movieMap;
+        this.earningsIndex = null;
+        this.directorIndex = null;
+        this.genreIndex = null;
+        this.yearIndex = null;
+        this.directorStats = null;
+        this.genreStats = null;
+        this.yearStats = null;
+        this.stripes = new Object[] {new Object()};
+        this.insertionOrder = null;
+        this.insertionSequence = null;
+    }
+
+    /**
+     * Внутрішній запис, що представляє дані про фільм.
+     */
+    record MovieData(String title, String director, String genre, int yearReleased, double boxOfficeEarnings) {
+    }
+
+    /**
+     * Додає новий фільм до керівництва касовими зборами.
+     * 
+     * @param title             назва фільму
+     * @param director          режисер фільму
+     * @param genre             жанр фільму
+     * @param yearReleased      рік виходу фільму
+     * @param boxOfficeEarnings касові збори фільму
+     */
+    public void addMovie(String title, String director, String genre, int yearReleased, double boxOfficeEarnings) {
+        long start = startTimer();
+        try {
+            insertMovie(title, director, genre, yearReleased, boxOfficeEarnings);
+        } finally {
+            stopTimer(CatalogOperation.ADD_MOVIE, start);
+        }
+    }
+
+    /**
+     * Додає фільм без запису метрик; так додаються фільми під час завантаження.
+     */
+    private void insertMovie(String title, String director, String genre, int yearReleased,
+            double boxOfficeEarnings) {
+        if (!insertMovieIfAbsent(title, director, genre, yearReleased, boxOfficeEarnings)) {
+            throw new IllegalArgumentException("Movie with title '" + title + "' already exists");
+        }
+    }
+
+    /**
+     * Атомарно додає фільм, якщо фільму з такою назвою ще немає.
+     * 
+     * @param title             назва фільму
+     * @param director          режисер фільму
+     * @param genre             жанр фільму
+     * @param yearReleased      рік виходу фільму
+     * @param boxOfficeEarnings касові збори фільму
+     * @return true, якщо фільм додано, false, якщо фільм з такою назвою вже є
+     */
+    public boolean addMovieIfAbsent(String title, String director, String genre, int yearReleased,
+            double boxOfficeEarnings) {
+        long start = startTimer();
+        try {
+            return insertMovieIfAbsent(title, director, genre, yearReleased, boxOfficeEarnings);
+        } finally {
+            stopTimer(CatalogOperation.ADD_MOVIE_IF_ABSENT, start);
+        }
+    }
+
+    private boolean insertMovieIfAbsent(String title, String director, String genre, int yearReleased,
+            double boxOfficeEarnings) {
+        MovieData movie = newMovie(title, director, genre, yearReleased, boxOfficeEarnings);
+        long lsn;
+        synchronized (stripeOf(title)) {
+            if (movieMap.putIfAbsent(title, movie) != null) {
+                return false;
+            }
+            lsn = index(movie);
+        }
+        awaitDurable(lsn);
+        return true;
+    }
+
+    /**
+     * Створює запис фільму, у якому режисер і жанр узяті зі словників.
+     */
+    private MovieData newMovie(String title, String director, String genre, int yearReleased,
+            double boxOfficeEarnings) {
+        return indexed
+                ? new MovieData(title, directors.intern(director), genres.intern(genre), yearReleased,
+                        boxOfficeEarnings)
+                : new MovieData(title, director, genre, yearReleased, boxOfficeEarnings);
+    }
+
+    /**
+     * Додає одразу кілька фільмів: або всі, або жодного. Повторювані назви
+     * в пакеті та назви, які вже є в керівництві, перевіряються за один прохід
+     * до зміни керівництва. У стійкому режимі пакет записується до журналу одним
+     * записом до зміни керівництва, тож і після збою він відновлюється лише цілим.
+     * На час додавання блокуються всі смуги, тож інші зміни чекають; читання
+     * в паралельному режимі можуть бачити частину пакета.
+     * 
+     * @param movies фільми для додавання
+     * @throws IllegalArgumentException якщо назва повторюється в пакеті або вже є в керівництві
+     */
+    public void addMovies(Collection<MovieData> movies) {
+        long start = startTimer();
+        try {
+            Map<String, MovieData> batch = new LinkedHashMap<>(hashCapacity(movies.size()));
+            for (MovieData movie : movies) {
+                MovieData interned = newMovie(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                        movie.boxOfficeEarnings());
+                if (batch.putIfAbsent(movie.title(), interned) != null) {
+                    throw new IllegalArgumentException("Movie with title '" + movie.title()
+                            + "' is repeated in the batch");
+                }
+            }
+            long[] lsn = new long[1];
+            withAllStripes(0, () -> {
+                for (String title : batch.keySet()) {
+                    if (movieMap.containsKey(title)) {
+                        throw new IllegalArgumentException("Movie with title '" + title + "' already exists");
+                    }
+                }
+                WriteAheadLog log = writeAheadLog;
+                if (log != null) {
+                    lsn[0] = log.logAddAll(batch.values());
+                }
+                for (MovieData movie : batch.values()) {
+                    movieMap.put(movie.title(), movie);
+                    addToIndexes(movie);
+                }
+            });
+            awaitDurable(lsn[0]);
+        } finally {
+            stopTimer(CatalogOperation.ADD_MOVIES, start);
+        }
+    }
+
+    /**
+     * Виконує дію, утримуючи блокування всіх смуг, починаючи з заданої.
+     */
+    private void withAllStripes(int from, Runnable action) {
+        if (from == stripes.length) {
+            action.run();
+            return;
+        }
+        synchronized (stripes[from]) {
+            withAllStripes(from + 1, action);
+        }
+    }
+
+    /**
+     * Видаляє фільм з керівництва касовими зборами за його назвою.
+     * 
+     * @param title назва фільму для видалення
+     */
+    public void removeMovie(String title) {
+        long start = startTimer();
+        try {
+            if (deleteMovieIfPresent(title) == null) {
+                throw new IllegalArgumentException("Movie with title '" + title + "' not found");
+            }
+        } finally {
+            stopTimer(CatalogOperation.REMOVE_MOVIE, start);
+        }
+    }
+
+    /**
+     * Атомарно видаляє фільм, якщо він є в керівництві.
+     * 
+     * @param title назва фільму для видалення
+     * @return видалений фільм або null, якщо фільму не було
+     */
+    public MovieData removeMovieIfPresent(String title) {
+        long start = startTimer();
+        try {
+            return deleteMovieIfPresent(title);
+        } finally {
+            stopTimer(CatalogOperation.REMOVE_MOVIE_IF_PRESENT, start);
+        }
+    }
+
+    /**
+     * Видаляє фільм без запису метрик; так обробляються надгробки під час завантаження.
+     */
+    private MovieData deleteMovieIfPresent(String title) {
+        MovieData movie;
+        long lsn = 0;
+        synchronized (stripeOf(title)) {
+            movie = movieMap.remove(title);
+            if (movie != null) {
+                lsn = unindex(movie);
+            }
+        }
+        awaitDurable(lsn);
+        return movie;
+    }
+
+    /**
+     * Повертає об'єкт блокування смуги, до якої належить назва фільму.
+     */
+    private Object stripeOf(String title) {
+        return stripes[(title.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    /**
+     * Додає щойно вставлений фільм до журналу стійкого режиму і до всіх індексів.
+     * Якщо журнал уже закритий, вставка скасовується. Викликається під блокуванням смуги.
+     * 
+     * @return номер запису в журналі або 0, якщо журналу немає
+     */
+    private long index(MovieData movie) {
+        WriteAheadLog log = writeAheadLog;
+        long lsn = 0;
+        if (log != null) {
+            try {
+                lsn = log.logAdd(movie);
+            } catch (IllegalStateException e) {
+                movieMap.remove(movie.title());
+                throw e;
+            }
+        }
+        addToIndexes(movie);
+        return lsn;
+    }
+
+    /**
+     * Додає фільм до всіх індексів. Викликається під блокуванням смуги.
+     */
+    private void addToIndexes(MovieData movie) {
+        if (indexed) {
+            earningsIndex.add(movie);
+            addToGroup(directorIndex, directorStats, directors.encode(movie.director()), movie);
+            addToGroup(genreIndex, genreStats, genres.encode(movie.genre()), movie);
+            addToGroup(yearIndex, yearStats, movie.yearReleased(), movie);
+            if (insertionOrder != null) {
+                long sequence = nextSequence.getAndIncrement();
+                insertionSequence.put(movie.title(), sequence);
+                insertionOrder.put(sequence, movie);
+            }
+        }
+    }
+
+    /**
+     * Записує видалення фільму до журналу стійкого режиму і прибирає фільм з усіх
+     * індексів. Якщо журнал уже закритий, видалення скасовується. Викликається під
+     * блокуванням смуги.
+     * 
+     * @return номер запису в журналі або 0, якщо журналу немає
+     */
+    private long unindex(MovieData movie) {
+        WriteAheadLog log = writeAheadLog;
+        long lsn = 0;
+        if (log != null) {
+            try {
+                lsn = log.logRemove(movie.title());
+            } catch (IllegalStateException e) {
+                movieMap.put(movie.title(), movie);
+                throw e;
+            }
+        }
+        if (indexed) {
+            earningsIndex.remove(movie);
+            removeFromGroup(directorIndex, directorStats, directors.encode(movie.director()), movie);
+            removeFromGroup(genreIndex, genreStats, genres.encode(movie.genre()), movie);
+            removeFromGroup(yearIndex, yearStats, movie.yearReleased(), movie);
+            if (insertionOrder != null) {
+                Long sequence = insertionSequence.remove(movie.title());
+                SnapshotCapture capture = snapshotCapture;
+                if (capture != null && sequence < capture.endSequence) {
+                    capture.removed.put(sequence, movie);
+                }
+                insertionOrder.remove(sequence);
+            }
+        }
+        return lsn;
+    }
+
+    /**
+     * Чекає, доки запис журналу стане стійким. Викликається після зняття блокування смуги,
+     * тож поки провідний потік виконує fsync, інші зміни накопичуються для наступної групи.
+     * 
+     * @throws UncheckedIOException якщо журнал не вдалося записати
+     */
+    private void awaitDurable(long lsn) {
+        if (lsn == 0) {
+            return;
+        }
+        try {
+            writeAheadLog.awaitDurable(lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Додає фільм до групи вторинного індексу разом зі статистикою групи.
+     */
+    private void addToGroup(Map<Integer, Set<MovieData>> index, Map<Integer, EarningsAccumulator> stats, int key,
+            MovieData movie) {
+        stats.computeIfAbsent(key, k -> new EarningsAccumulator())
+                .add(index.computeIfAbsent(key, k -> newBucket()), movie);
+    }
+
+    private static void removeFromGroup(Map<Integer, Set<MovieData>> index, Map<Integer, EarningsAccumulator> stats,
+            int key, MovieData movie) {
+        stats.get(key).remove(index.get(key), movie);
+    }
+
+    /**
+     * Створює групу вторинного індексу. Порожні групи не прибираються, тож
+     * видані представлення груп залишаються актуальними.
+     */
+    private Set<MovieData> newBucket() {
+        return concurrent ? ConcurrentHashMap.newKeySet() : new LinkedHashSet<>();
+    }
+
+    /**
+     * Повертає всі фільми в порядку додавання, якщо він зберігається.
+     */
+    private Collection<MovieData> movies() {
+        return insertionOrder != null ? insertionOrder.values() : movieMap.values();
+    }
+
+    /**
+     * Відкриває представлення всіх фільмів на поточний момент. Обхід представлення
+     * повертає фільми в тому ж порядку, що й movies(), і не бачить змін після відкриття.
+     * <p>
+     * У паралельному режимі зі збереженням порядку відкриття лише коротко блокує
+     * всі смуги, щоб запам'ятати межу порядкових номерів: фільми з меншими номерами
+     * і є знімком. Нові фільми отримують більші номери й пропускаються, а видалені
+     * фільми unindex() зберігає в знімку, тож обхід не заважає змінам. Без
+     * збереження порядку фільми копіюються під блокуванням усіх смуг. У звичайному
+     * режимі керівництво не змінюється одночасно з обходом, тож обходяться самі фільми.
+     * 
+     * @param atCapture дія, яка виконується в момент знімка, поки зміни заблоковані
+     * @return представлення, яке слід закрити після обходу
+     */
+    private SnapshotView openSnapshotView(Runnable atCapture) {
+        if (!concurrent) {
+            atCapture.run();
+            return new SnapshotView(movies(), null);
+        }
+        snapshotLock.lock();
+        try {
+            SnapshotView[] view = new SnapshotView[1];
+            withAllStripes(0, () -> {
+                atCapture.run();
+                if (insertionOrder != null) {
+                    snapshotCapture = new SnapshotCapture(nextSequence.get());
+                    view[0] = new SnapshotView(null, snapshotCapture);
+                } else {
+                    view[0] = new SnapshotView(new ArrayList<>(movieMap.values()), null);
+                }
+            });
+            return view[0];
+        } catch (RuntimeException e) {
+            snapshotLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Межа знімка і фільми зі знімка, видалені після його початку, за порядковими номерами.
+     */
+    private static final class SnapshotCapture {
+        private final long endSequence;
+        private final ConcurrentNavigableMap<Long, MovieData> removed = new ConcurrentSkipListMap<>();
+
+        SnapshotCapture(long endSequence) {
+            this.endSequence = endSequence;
+        }
+    }
+
+    /**
+     * Представлення фільмів на момент знімка. Закриття завершує знімок.
+     */
+    private final class SnapshotView implements Iterable<MovieData>, AutoCloseable {
+        private final Collection<MovieData> movies;
+        private final SnapshotCapture capture;
+
+        SnapshotView(Collection<MovieData> movies, SnapshotCapture capture) {
+            this.movies = movies;
+            this.capture = capture;
+        }
+
+        /**
+         * Зливає фільми, що залишилися в insertionOrder, з видаленими фільмами знімка
+         * за зростанням порядкових номерів. Видалені фільми між двома сусідніми живими
+         * запитуються вже після того, як обхід insertionOrder їх минув; unindex()
+         * зберігає фільм до вилучення з insertionOrder, тож жоден фільм не губиться
+         * і не повторюється.
+         */
+        @Override
+        public Iterator<MovieData> iterator() {
+            if (capture == null) {
+                return movies.iterator();
+            }
+            Iterator<Map.Entry<Long, MovieData>> live = insertionOrder.headMap(capture.endSequence)
+                    .entrySet().iterator();
+            return new Iterator<>() {
+                private Iterator<MovieData> removedBefore = Collections.emptyIterator();
+                private MovieData nextLive;
+                private long lastSequence = -1;
+                private boolean liveExhausted;
+                private MovieData next = advance();
+
+                private MovieData advance() {
+                    while (true) {
+                        if (removedBefore.hasNext()) {
+                            return removedBefore.next();
+                        }
+                        if (nextLive != null) {
+                            MovieData movie = nextLive;
+                            nextLive = null;
+                            return movie;
+                        }
+                        if (live.hasNext()) {
+                            Map.Entry<Long, MovieData> entry = live.next();
+                            removedBefore = capture.removed.subMap(lastSequence, false, entry.getKey(), false)
+                                    .values().iterator();
+                            lastSequence = entry.getKey();
+                            nextLive = entry.getValue();
+                        } else if (!liveExhausted) {
+                            liveExhausted = true;
+                            removedBefore = capture.removed.subMap(lastSequence, false, capture.endSequence, false)
+                                    .values().iterator();
+                        } else {
+                            return null;
+                        }
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public MovieData next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    MovieData movie = next;
+                    next = advance();
+                    return movie;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            if (!concurrent) {
+                return;
+            }
+            if (capture != null) {
+                snapshotCapture = null;
+            }
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Переглядає всі фільми і повертає ті, що задовольняють умову, у порядку обходу.
+     */
+    private List<MovieData> scan(Predicate<MovieData> predicate) {
+        List<MovieData> result = new ArrayList<>();
+        for (MovieData movie : movies()) {
+            if (predicate.test(movie)) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Відбирає count перших за рейтингом фільмів з джерела за допомогою обмеженої купи.
+     */
+    private static List<MovieData> topOf(Iterable<MovieData> source, Predicate<MovieData> predicate, int count) {
+        PriorityQueue<MovieData> heap = new PriorityQueue<>(EARNINGS_ORDER.reversed());
+        for (MovieData movie : source) {
+            if (predicate.test(movie)) {
+                heap.add(movie);
+                if (heap.size() > count) {
+                    heap.poll();
+                }
+            }
+        }
+        List<MovieData> result = new ArrayList<>(heap);
+        result.sort(EARNINGS_ORDER);
+        return result;
+    }
+
+    /**
+     * Знаходить фільм за його назвою.
+     * 
+     * @param title назва фільму для пошуку
+     * @return об'єкт MovieData, якщо фільм знайдено, інакше null
+     */
+    public MovieData findMovieByTitle(String title) {
+        long start = startTimer();
+        try {
+            return movieMap.get(title);
+        } finally {
+            stopTimer(CatalogOperation.FIND_MOVIE_BY_TITLE, start);
+        }
+    }
+
+    /**
+     * Повертає всі фільми режисера. Представлення лише для читання
+     * відображає подальші зміни керівництва; у позакупному і стовпцевому
+     * режимах повертається список, знайдений переглядом усіх фільмів.
+     * 
+     * @param director режисер
+     * @return фільми режисера
+     */
+    public Collection<MovieData> findMoviesByDirector(String director) {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.findByDirector(director);
+            }
+            if (!indexed) {
+                return scan(movie -> Objects.equals(director, movie.director()));
+            }
+            return bucketView(bucketOf(directorIndex, directors, director));
+        } finally {
+            stopTimer(CatalogOperation.FIND_MOVIES_BY_DIRECTOR, start);
+        }
+    }
+
+    /**
+     * Повертає всі фільми жанру. Представлення лише для читання
+     * відображає подальші зміни керівництва; у позакупному і стовпцевому
+     * режимах повертається список, знайдений переглядом усіх фільмів.
+     * 
+     * @param genre жанр
+     * @return фільми жанру
+     */
+    public Collection<MovieData> findMoviesByGenre(String genre) {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.findByGenre(genre);
+            }
+            if (!indexed) {
+                return scan(movie -> Objects.equals(genre, movie.genre()));
+            }
+            return bucketView(bucketOf(genreIndex, genres, genre));
+        } finally {
+            stopTimer(CatalogOperation.FIND_MOVIES_BY_GENRE, start);
+        }
+    }
+
+    /**
+     * Повертає всі фільми, які вийшли в заданому році. Представлення лише для читання
+     * відображає подальші зміни керівництва; у позакупному і стовпцевому
+     * режимах повертається список, знайдений переглядом усіх фільмів.
+     * 
+     * @param yearReleased рік виходу
+     * @return фільми цього року
+     */
+    public Collection<MovieData> findMoviesByYear(int yearReleased) {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.findReleasedBetween(yearReleased, yearReleased);
+            }
+            if (!indexed) {
+                return scan(movie -> movie.yearReleased() == yearReleased);
+            }
+            return bucketView(yearIndex.get(yearReleased));
+        } finally {
+            stopTimer(CatalogOperation.FIND_MOVIES_BY_YEAR, start);
+        }
+    }
+
+    /**
+     * Повертає всі фільми, які вийшли в заданому проміжку років, впорядковані за роком.
+     * 
+     * @param fromYear перший рік проміжку
+     * @param toYear   останній рік проміжку
+     * @return фільми, які вийшли з fromYear до toYear включно
+     */
+    public List<MovieData> findMoviesReleasedBetween(int fromYear, int toYear) {
+        long start = startTimer();
+        try {
+            if (!indexed) {
+                List<MovieData> movies = movieMap instanceof ColumnarMovieMap columnar
+                        ? columnar.findReleasedBetween(fromYear, toYear)
+                        : scan(movie -> movie.yearReleased() >= fromYear && movie.yearReleased() <= toYear);
+                movies.sort(Comparator.comparingInt(MovieData::yearReleased));
+                return movies;
+            }
+            List<MovieData> movies = new ArrayList<>();
+            if (fromYear <= toYear) {
+                for (Set<MovieData> bucket : yearIndex.subMap(fromYear, true, toYear, true).values()) {
+                    movies.addAll(bucket);
+                }
+            }
+            return movies;
+        } finally {
+            stopTimer(CatalogOperation.FIND_MOVIES_RELEASED_BETWEEN, start);
+        }
+    }
+
+    /**
+     * Знаходить групу індексу за значенням поля, не додаючи значення до словника.
+     */
+    private static Set<MovieData> bucketOf(Map<Integer, Set<MovieData>> index, StringDictionary dictionary,
+            String value) {
+        Integer code = dictionary.codeOf(value);
+        return code == null ? null : index.get(code);
+    }
+
+    private static Collection<MovieData> bucketView(Set<MovieData> bucket) {
+        return bucket == null ? Collections.emptySet() : Collections.unmodifiableSet(bucket);
+    }
+
+    /**
+     * Повертає список всіх фільмів, відсортованих за касовими зборами.
+     * 
+     * @return список фільмів, відсортований за касовими зборами
+     */
+    public List<MovieData> getAllMoviesSortedByBoxOfficeEarnings() {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof MappedMovieMap mapped) {
+                List<MovieData> movies = new ArrayList<>(movieMap.size());
+                mapped.ranking(0).forEachRemaining(movies::add);
+                return movies;
+            }
+            if (!indexed) {
+                List<MovieData> movies = new ArrayList<>(movies());
+                movies.sort(EARNINGS_ORDER);
+                return movies;
+            }
+            return new ArrayList<>(earningsIndex);
+        } finally {
+            stopTimer(CatalogOperation.GET_ALL_MOVIES_SORTED_BY_BOX_OFFICE_EARNINGS, start);
+        }
+    }
+
+    /**
+     * Повертає представлення всіх фільмів, впорядкованих за касовими зборами, без копіювання.
+     * Представлення лише для читання і відображає подальші зміни керівництва;
+     * змінювати керівництво під час обходу можна лише в паралельному режимі.
+     * У позакупному режимі повертається відсортована копія, а над образом
+     * каталогу - представлення, яке читає рейтинг образу.
+     * 
+     * @return впорядковане представлення фільмів за касовими зборами
+     */
+    public Collection<MovieData> moviesByBoxOfficeEarnings() {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof MappedMovieMap mapped) {
+                return new AbstractCollection<>() {
+                    @Override
+                    public Iterator<MovieData> iterator() {
+                        return mapped.ranking(0);
+                    }
+
+                    @Override
+                    public int size() {
+                        return mapped.size();
+                    }
+                };
+            }
+            if (!indexed) {
+                return Collections.unmodifiableList(getAllMoviesSortedByBoxOfficeEarnings());
+            }
+            return Collections.unmodifiableCollection(earningsIndex);
+        } finally {
+            stopTimer(CatalogOperation.MOVIES_BY_BOX_OFFICE_EARNINGS, start);
+        }
+    }
+
+    /**
+     * Повертає k фільмів з найбільшими касовими зборами.
+     * 
+     * @param k кількість фільмів у результаті
+     * @return не більше k фільмів, відсортованих за касовими зборами
+     */
+    public List<MovieData> topByEarnings(int k) {
+        long start = startTimer();
+        try {
+            return rankPage(0, k);
+        } finally {
+            stopTimer(CatalogOperation.TOP_BY_EARNINGS, start);
+        }
+    }
+
+    /**
+     * Повертає сторінку рейтингу фільмів за касовими зборами.
+     * Обходить лише offset + limit перших елементів індексу; у позакупному
+     * режимі відбирає їх з усіх фільмів обмеженою купою. Над незміненим
+     * образом каталогу читаються лише фільми сторінки.
+     * 
+     * @param offset кількість позицій рейтингу, які слід пропустити
+     * @param limit  максимальна кількість фільмів на сторінці
+     * @return фільми з позицій [offset, offset + limit) рейтингу
+     */
+    public List<MovieData> rankPage(int offset, int limit) {
+        long start = startTimer();
+        try {
+            if (offset < 0 || limit < 0) {
+                throw new IllegalArgumentException("Offset and limit must be non-negative");
+            }
+            Iterator<MovieData> iterator;
+            if (movieMap instanceof MappedMovieMap mapped) {
+                iterator = mapped.ranking(offset);
+            } else if (!indexed) {
+                int end = (int) Math.min((long) offset + limit, movieMap.size());
+                List<MovieData> top = topOf(movies(), movie -> true, end);
+                return new ArrayList<>(top.subList(Math.min(offset, top.size()), top.size()));
+            } else {
+                iterator = earningsIndex.iterator();
+                for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+                    iterator.next();
+                }
+            }
+            List<MovieData> page = new ArrayList<>(Math.min(limit, Math.max(0, movieMap.size() - offset)));
+            while (page.size() < limit && iterator.hasNext()) {
+                page.add(iterator.next());
+            }
+            return page;
+        } finally {
+            stopTimer(CatalogOperation.RANK_PAGE, start);
+        }
+    }
+
+    /**
+     * Повертає кількість, суму, найменші, найбільші й середні касові збори
+     * фільмів кожного жанру. Статистика підтримується при кожній зміні
+     * керівництва, тож читання переглядає лише групи, а не всі фільми;
+     * у позакупному режимі вона обчислюється за один перегляд усіх фільмів.
+     * 
+     * @return статистика за жанрами в порядку першої появи жанру
+     */
+    public Map<String, EarningsStats> earningsStatsByGenre() {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.earningsStatsByGenre();
+            }
+            if (!indexed) {
+                return scanStats(MovieData::genre, new LinkedHashMap<>());
+            }
+            return statsByCode(genreIndex, genreStats, genres);
+        } finally {
+            stopTimer(CatalogOperation.EARNINGS_STATS_BY_GENRE, start);
+        }
+    }
+
+    /**
+     * Повертає статистику касових зборів фільмів кожного режисера.
+     * 
+     * @return статистика за режисерами в порядку першої появи режисера
+     * @see #earningsStatsByGenre()
+     */
+    public Map<String, EarningsStats> earningsStatsByDirector() {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.earningsStatsByDirector();
+            }
+            if (!indexed) {
+                return scanStats(MovieData::director, new LinkedHashMap<>());
+            }
+            return statsByCode(directorIndex, directorStats, directors);
+        } finally {
+            stopTimer(CatalogOperation.EARNINGS_STATS_BY_DIRECTOR, start);
+        }
+    }
+
+    /**
+     * Повертає статистику касових зборів фільмів кожного року виходу.
+     * 
+     * @return статистика за роками, впорядкована за роками
+     * @see #earningsStatsByGenre()
+     */
+    public Map<Integer, EarningsStats> earningsStatsByYear() {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.earningsStatsByYear();
+            }
+            if (!indexed) {
+                return scanStats(MovieData::yearReleased, new TreeMap<>());
+            }
+            Map<Integer, EarningsStats> result = new TreeMap<>();
+            for (Map.Entry<Integer, Set<MovieData>> entry : yearIndex.entrySet()) {
+                EarningsStats stats = yearStats.get(entry.getKey()).stats(entry.getValue());
+                if (stats != null) {
+                    result.put(entry.getKey(), stats);
+                }
+            }
+            return result;
+        } finally {
+            stopTimer(CatalogOperation.EARNINGS_STATS_BY_YEAR, start);
+        }
+    }
+
+    /**
+     * Збирає статистику непорожніх груп індексу в порядку кодів словника.
+     */
+    private static Map<String, EarningsStats> statsByCode(Map<Integer, Set<MovieData>> index,
+            Map<Integer, EarningsAccumulator> stats, StringDictionary dictionary) {
+        Map<String, EarningsStats> result = new LinkedHashMap<>();
+        for (int code = StringDictionary.NULL_CODE; code < dictionary.size(); code++) {
+            EarningsAccumulator accumulator = stats.get(code);
+            EarningsStats groupStats = accumulator == null ? null : accumulator.stats(index.get(code));
+            if (groupStats != null) {
+                result.put(dictionary.decode(code), groupStats);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обчислює статистику груп за один перегляд усіх фільмів.
+     */
+    private <K> Map<K, EarningsStats> scanStats(Function<MovieData, K> groupOf, Map<K, EarningsStats> result) {
+        Map<K, EarningsAccumulator> accumulators = new LinkedHashMap<>();
+        for (MovieData movie : movies()) {
+            accumulators.computeIfAbsent(groupOf.apply(movie), key -> new EarningsAccumulator())
+                    .add(movie.boxOfficeEarnings());
+        }
+        accumulators.forEach((key, accumulator) -> result.put(key, accumulator.stats(Set.of())));
+        return result;
+    }
+
+    /**
+     * Будує стовпцевий знімок усіх фільмів для агрегацій і сортувань
+     * над масивами примітивів. У стовпцевому режимі (columnar) знімок
+     * копіює стовпці сховища без створення об'єктів MovieData.
+     * 
+     * @return незмінний стовпцевий знімок керівництва
+     */
+    public ColumnarMovieStore toColumnar() {
+        long start = startTimer();
+        try {
+            if (movieMap instanceof ColumnarMovieMap columnar) {
+                return columnar.toStore();
+            }
+            ColumnarMovieStore.Builder builder = ColumnarMovieStore.builder(movieMap.size());
+            for (MovieData movie : movies()) {
+                builder.add(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                        movie.boxOfficeEarnings());
+            }
+            return builder.build();
+        } finally {
+            stopTimer(CatalogOperation.TO_COLUMNAR, start);
+        }
+    }
+
+    /**
+     * Починає побудову запиту до керівництва.
+     * 
+     * @return новий запит без умов
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Запит до керівництва: умови на поля фільму, об'єднані через "і",
+     * необов'язкове впорядкування за касовими зборами та обмеження кількості
+     * результатів. Під час виконання обирається найвибірковіший доступний індекс
+     * (назва, режисер, жанр, рік чи касові збори), а решта умов перевіряється
+     * лише для фільмів, які повертає цей індекс.
+     */
+    public final class Query {
+        private String title;
+        private String director;
+        private String genre;
+        private int fromYear = Integer.MIN_VALUE;
+        private int toYear = Integer.MAX_VALUE;
+        private double minEarnings = Double.NEGATIVE_INFINITY;
+        private double maxEarnings = Double.POSITIVE_INFINITY;
+        /** Чи задано умову на касові збори; без неї запит повертає й фільми з NaN зборами. */
+        private boolean earningsFiltered;
+        private Predicate<MovieData> filter;
+        private boolean orderByEarnings;
+        private int limit = Integer.MAX_VALUE;
+
+        private Query() {
+        }
+
+        /**
+         * @param title назва фільму
+         * @return цей запит
+         */
+        public Query title(String title) {
+            this.title = title;
+            return this;
+        }
+
+        /**
+         * @param director режисер фільму
+         * @return цей запит
+         */
+        public Query director(String director) {
+            this.director = director;
+            return this;
+        }
+
+        /**
+         * @param genre жанр фільму
+         * @return цей запит
+         */
+        public Query genre(String genre) {
+            this.genre = genre;
+            return this;
+        }
+
+        /**
+         * @param fromYear перший рік виходу (включно)
+         * @param toYear   останній рік виходу (включно)
+         * @return цей запит
+         */
+        public Query releasedBetween(int fromYear, int toYear) {
+            this.fromYear = Math.max(this.fromYear, fromYear);
+            this.toYear = Math.min(this.toYear, toYear);
+            return this;
+        }
+
+        /**
+         * @param earnings касові збори, які мають бути строго перевищені
+         * @return цей запит
+         */
+        public Query earningsAbove(double earnings) {
+            return earningsBetween(Math.nextUp(earnings), Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * @param earnings найменші допустимі касові збори
+         * @return цей запит
+         */
+        public Query earningsAtLeast(double earnings) {
+            return earningsBetween(earnings, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * @param earnings касові збори, які мають бути строго меншими
+         * @return цей запит
+         */
+        public Query earningsBelow(double earnings) {
+            return earningsBetween(Double.NEGATIVE_INFINITY, Math.nextDown(earnings));
+        }
+
+        /**
+         * @param earnings найбільші допустимі касові збори
+         * @return цей запит
+         */
+        public Query earningsAtMost(double earnings) {
+            return earningsBetween(Double.NEGATIVE_INFINITY, earnings);
+        }
+
+        /**
+         * @param minEarnings найменші допустимі касові збори
+         * @param maxEarnings найбільші допустимі касові збори
+         * @return цей запит
+         */
+        public Query earningsBetween(double minEarnings, double maxEarnings) {
+            this.minEarnings = Math.max(this.minEarnings, minEarnings);
+            this.maxEarnings = Math.min(this.maxEarnings, maxEarnings);
+            this.earningsFiltered = true;
+            return this;
+        }
+
+        /**
+         * Додає довільну умову, яка перевіряється після індексних.
+         * 
+         * @param predicate умова на фільм
+         * @return цей запит
+         */
+        public Query where(Predicate<MovieData> predicate) {
+            this.filter = filter == null ? predicate : filter.and(predicate);
+            return this;
+        }
+
+        /**
+         * Впорядковує результат за спаданням касових зборів.
+         * 
+         * @return цей запит
+         */
+        public Query orderByEarnings() {
+            this.orderByEarnings = true;
+            return this;
+        }
+
+        /**
+         * @param limit найбільша кількість фільмів у результаті
+         * @return цей запит
+         */
+        public Query limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must be non-negative");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Описує, яким шляхом буде виконано запит.
+         * 
+         * @return назва обраного індексу та оцінка кількості переглянутих фільмів
+         */
+        public String explain() {
+            Plan plan = plan();
+            return plan.name() + " (~" + plan.estimate() + " movies)";
+        }
+
+        /**
+         * Виконує запит.
+         * 
+         * @return фільми, які задовольняють усі умови
+         */
+        public List<MovieData> list() {
+            long start = startTimer();
+            try {
+                Plan plan = plan();
+                List<MovieData> result = new ArrayList<>();
+                if (limit == 0) {
+                    return result;
+                }
+                if (orderByEarnings && !plan.earningsOrdered()) {
+                    return topOf(plan.source(), this::matches, limit);
+                }
+                for (MovieData movie : plan.source()) {
+                    if (matches(movie)) {
+                        result.add(movie);
+                        if (result.size() == limit) {
+                            break;
+                        }
+                    }
+                }
+                return result;
+            } finally {
+                stopTimer(CatalogOperation.QUERY, start);
+            }
+        }
+
+        private boolean matches(MovieData movie) {
+            return (title == null || title.equals(movie.title()))
+                    && (director == null || director.equals(movie.director()))
+                    && (genre == null || genre.equals(movie.genre()))
+                    && movie.yearReleased() >= fromYear && movie.yearReleased() <= toYear
+                    && (!earningsFiltered
+                            || movie.boxOfficeEarnings() >= minEarnings && movie.boxOfficeEarnings() <= maxEarnings)
+                    && (filter == null || filter.test(movie));
+        }
+
+        /**
+         * Обирає джерело фільмів з найменшою оцінкою кількості переглянутих фільмів.
+         */
+        private Plan plan() {
+            if (title != null) {
+                MovieData movie = movieMap.get(title);
+                return new Plan("title lookup", 1, movie == null ? List.of() : List.of(movie), false);
+            }
+            if (fromYear > toYear || !(minEarnings <= maxEarnings)) {
+                return new Plan("empty range", 0, List.of(), false);
+            }
+            long size = movieMap.size();
+            Plan best = new Plan("full scan", size, movies(), false);
+            if (!indexed) {
+                return best;
+            }
+            if (director != null) {
+                best = cheaper(best, bucketPlan("director index", bucketOf(directorIndex, directors, director)));
+            }
+            if (genre != null) {
+                best = cheaper(best, bucketPlan("genre index", bucketOf(genreIndex, genres, genre)));
+            }
+            if (fromYear != Integer.MIN_VALUE || toYear != Integer.MAX_VALUE) {
+                Collection<Set<MovieData>> buckets = yearIndex.subMap(fromYear, true, toYear, true).values();
+                long estimate = 0;
+                for (Set<MovieData> bucket : buckets) {
+                    estimate += bucket.size();
+                }
+                best = cheaper(best, new Plan("year index", estimate,
+                        () -> buckets.stream().flatMap(Set::stream).iterator(), false));
+            }
+            boolean minBounded = minEarnings != Double.NEGATIVE_INFINITY;
+            boolean maxBounded = maxEarnings != Double.POSITIVE_INFINITY;
+            if (minBounded || maxBounded || orderByEarnings) {
+                // Без статистики розподілу діапазон вважається таким, що відбирає
+                // третину фільмів (або чверть, якщо обмежений з обох боків).
+                long estimate = minBounded && maxBounded ? size / 4 : minBounded || maxBounded ? size / 3 : size;
+                if (orderByEarnings && limit != Integer.MAX_VALUE) {
+                    // Обхід у порядку зборів зупиняється після limit збігів; інші умови
+                    // пропускають приблизно best.estimate / size фільмів.
+                    estimate = Math.min(estimate, limit * size / Math.max(1, best.estimate()));
+                }
+                NavigableSet<MovieData> range = earningsIndex;
+                if (earningsFiltered) {
+                    // Межа зборів із найменшою назвою стоїть перед усіма фільмами з такими
+                    // зборами; tailSet відкидає й фільми з NaN зборами, які стоять першими.
+                    range = range.tailSet(new MovieData("", null, null, 0, maxEarnings), true);
+                    if (minBounded) {
+                        range = range.headSet(new MovieData("", null, null, 0, Math.nextDown(minEarnings)), false);
+                    }
+                }
+                Plan earningsPlan = new Plan("earnings index", estimate, range, true);
+                best = estimate < best.estimate() || (orderByEarnings && estimate == best.estimate()) ? earningsPlan
+                        : best;
+            }
+            return best;
+        }
+
+        private Plan bucketPlan(String name, Set<MovieData> bucket) {
+            return bucket == null ? new Plan(name, 0, List.of(), false) : new Plan(name, bucket.size(), bucket, false);
+        }
+
+        private Plan cheaper(Plan current, Plan candidate) {
+            return candidate.estimate() < current.estimate() ? candidate : current;
+        }
     }
 
     /**
-     * Внутрішній запис, що представляє дані про фільм.
+     * План виконання запиту: обраний індекс, оцінка кількості фільмів, які він
+     * поверне, і чи повертає він фільми вже впорядкованими за касовими зборами.
      */
-    private record MovieData(String title, String director, String genre, int yearReleased, double boxOfficeEarnings) {
+    private record Plan(String name, long estimate, Iterable<MovieData> source, boolean earningsOrdered) {
     }
 
     /**
-     * Додає новий фільм до керівництва касовими зборами.
+     * Виводить інформацію про фільм за його назвою.
      * 
-     * @param title             назва фільму
-     * @param director          режисер фільму
-     * @param genre             жанр фільму
-     * @param yearReleased      рік виходу фільму
-     * @param boxOfficeEarnings касові збори фільму
+     * @param title назва фільму для виводу інформації
      */
-    public void addMovie(String title, String director, String genre, int yearReleased, double boxOfficeEarnings) {
-        if (movieMap.containsKey(title)) {
-            throw new IllegalArgumentException("Movie with title '" + title + "' already exists");
+    public void printMovieInfoByTitle(String title) {
+        long start = startTimer();
+        try {
+            MovieData movie = movieMap.get(title);
+            if (movie != null) {
+                System.out.println("Title: " + movie.title);
+                System.out.println("Director: " + movie.director);
+                System.out.println("Genre: " + movie.genre);
+                System.out.println("Year Released: " + movie.yearReleased);
+                System.out.println("Box Office Earnings: " + movie.boxOfficeEarnings);
+            } else {
+                System.out.println("Movie with title '" + title + "' not found");
+            }
+        } finally {
+            stopTimer(CatalogOperation.PRINT_MOVIE_INFO_BY_TITLE, start);
         }
-        movieMap.put(title, new MovieData(title, director, genre, yearReleased, boxOfficeEarnings));
     }
 
     /**
-     * Видаляє фільм з керівництва касовими зборами за його назвою.
-     * 
-     * @param title назва фільму для видалення
+     * Виводить інформацію про всі фільми.
      */
-    public void removeMovie(String title) {
-        if (!movieMap.containsKey(title)) {
-            throw new IllegalArgumentException("Movie with title '" + title + "' not found");
+    public void printAllMovies() {
+        long start = startTimer();
+        try {
+            for (MovieData movieData : movies()) {
+                System.out.println("Title: " + movieData.title + ", Director: " + movieData.director +
+                        ", Genre: " + movieData.genre + ", Year Released: " + movieData.yearReleased +
+                        ", Box Office Earnings: " + movieData.boxOfficeEarnings);
+            }
+        } finally {
+            stopTimer(CatalogOperation.PRINT_ALL_MOVIES, start);
         }
-        movieMap.remove(title);
     }
 
     /**
-     * Знаходить фільм за його назвою.
+     * Зберігає дані про всі фільми у файл.
      * 
-     * @param title назва фільму для пошуку
-     * @return об'єкт MovieData, якщо фільм знайдено, інакше null
+     * @param filename ім'я файлу, в який будуть збережені дані про фільми
      */
-    public MovieData findMovieByTitle(String title) {
-        return movieMap.get(title);
+    public void saveToFile(String filename) {
+        long start = startTimer();
+        try {
+            invalidateFileIndex(filename);
+            try (SnapshotView view = openSnapshotView(() -> { });
+                    BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+                for (MovieData movie : view) {
+                    writer.write(movie.title() + "," + movie.director() + "," + movie.genre() + "," +
+                            movie.yearReleased() + "," + movie.boxOfficeEarnings() + "\n");
+                }
+            } catch (IOException e) {
+                reportFailure(CatalogOperation.SAVE_TO_FILE, e);
+            }
+        } finally {
+            recordBytes(CatalogOperation.SAVE_TO_FILE, 0, fileSizeForMetrics(filename));
+            stopTimer(CatalogOperation.SAVE_TO_FILE, start);
+        }
     }
 
     /**
-     * Повертає список всіх фільмів, відсортованих за касовими зборами.
+     * Зберігає дані про всі фільми у двійковий знімок.
      * 
-     * @return список фільмів, відсортований за касовими зборами
+     * @param filename ім'я файлу знімка
      */
-    public List<MovieData> getAllMoviesSortedByBoxOfficeEarnings() {
-        List<MovieData> sortedMovies = new ArrayList<>(movieMap.values());
-        sortedMovies.sort(Comparator.comparingDouble(MovieData::boxOfficeEarnings).reversed());
-        return sortedMovies;
+    public void saveToBinaryFile(String filename) {
+        long start = startTimer();
+        try (SnapshotView view = openSnapshotView(() -> { });
+                MovieSnapshotWriter writer = new MovieSnapshotWriter(Path.of(filename))) {
+            for (MovieData movie : view) {
+                writer.write(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                        movie.boxOfficeEarnings());
+            }
+        } catch (IOException e) {
+            reportFailure(CatalogOperation.SAVE_TO_BINARY_FILE, e);
+        } finally {
+            recordBytes(CatalogOperation.SAVE_TO_BINARY_FILE, 0, fileSizeForMetrics(filename));
+            stopTimer(CatalogOperation.SAVE_TO_BINARY_FILE, start);
+        }
     }
 
     /**
-     * Виводить інформацію про фільм за його назвою.
+     * Зберігає образ каталогу для відкриття методом mapped(String). Образ
+     * спершу записується в тимчасовий файл поруч і потім перейменовується,
+     * тож керівництва, які вже відобразили попередній образ, його не бачать.
      * 
-     * @param title назва фільму для виводу інформації
+     * @param filename ім'я файлу образу
      */
-    public void printMovieInfoByTitle(String title) {
-        MovieData movie = movieMap.get(title);
-        if (movie != null) {
-            System.out.println("Title: " + movie.title);
-            System.out.println("Director: " + movie.director);
-            System.out.println("Genre: " + movie.genre);
-            System.out.println("Year Released: " + movie.yearReleased);
-            System.out.println("Box Office Earnings: " + movie.boxOfficeEarnings);
-        } else {
-            System.out.println("Movie with title '" + title + "' not found");
+    public void saveToMappedFile(String filename) {
+        Path target = Path.of(filename);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long start = startTimer();
+        try {
+            try (SnapshotView view = openSnapshotView(() -> { })) {
+                MappedMovieImage.write(temp, view, EARNINGS_ORDER);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            recordBytes(CatalogOperation.SAVE_TO_MAPPED_FILE, 0, fileSizeForMetrics(filename));
+        } catch (IOException e) {
+            reportFailure(CatalogOperation.SAVE_TO_MAPPED_FILE, e);
+        } finally {
+            stopTimer(CatalogOperation.SAVE_TO_MAPPED_FILE, start);
         }
     }
 
     /**
-     * Виводить інформацію про всі фільми.
+     * Завантажує дані про фільми з двійкового знімка.
+     * 
+     * @param filename ім'я файлу знімка
      */
-    public void printAllMovies() {
-        for (MovieData movieData : movieMap.values()) {
-            System.out.println("Title: " + movieData.title + ", Director: " + movieData.director +
-                    ", Genre: " + movieData.genre + ", Year Released: " + movieData.yearReleased +
-                    ", Box Office Earnings: " + movieData.boxOfficeEarnings);
+    public void loadFromBinaryFile(String filename) {
+        long start = startTimer();
+        try {
+            long rows = MovieSnapshotReader.read(Path.of(filename), this::insertMovie);
+            recordBytes(CatalogOperation.LOAD_FROM_BINARY_FILE, fileSizeForMetrics(filename), 0);
+            recordRows(CatalogOperation.LOAD_FROM_BINARY_FILE, rows, 0);
+        } catch (IOException e) {
+            reportFailure(CatalogOperation.LOAD_FROM_BINARY_FILE, e);
+        } finally {
+            stopTimer(CatalogOperation.LOAD_FROM_BINARY_FILE, start);
         }
     }
 
     /**
-     * Зберігає дані про всі фільми у файл.
+     * Зберігає дані про всі фільми у JSON-файл виду {"movies":[...]}.
+     * Документ записується потоково, по одному фільму.
      * 
-     * @param filename ім'я файлу, в який будуть збережені дані про фільми
+     * @param filename ім'я JSON-файлу
      */
-    public void saveToFile(String filename) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            for (MovieData movie : movieMap.values()) {
-                writer.write(movie.title() + "," + movie.director() + "," + movie.genre() + "," +
-                        movie.yearReleased() + "," + movie.boxOfficeEarnings() + "\n");
+    public void saveToJsonFile(String filename) {
+        long start = startTimer();
+        try (SnapshotView view = openSnapshotView(() -> { });
+                MovieJsonWriter writer = new MovieJsonWriter(Path.of(filename))) {
+            for (MovieData movie : view) {
+                writer.write(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                        movie.boxOfficeEarnings());
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            reportFailure(CatalogOperation.SAVE_TO_JSON_FILE, e);
+        } finally {
+            recordBytes(CatalogOperation.SAVE_TO_JSON_FILE, 0, fileSizeForMetrics(filename));
+            stopTimer(CatalogOperation.SAVE_TO_JSON_FILE, start);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public void saveToJsonFile(String filename) {
-        JSONObject jsonObject = new JSONObject();
-        JSONArray moviesArray = new JSONArray();
+    /**
+     * Завантажує дані про фільми з JSON-файлу виду {"movies":[...]}.
+     * Фільми додаються по одному під час читання, без побудови дерева документа.
+     * 
+     * @param filename ім'я JSON-файлу
+     */
+    public void loadFromJsonFile(String filename) {
+        long start = startTimer();
+        try (Reader reader = new FileReader(filename)) {
+            long rows = MovieJsonReader.read(reader, this::insertMovie);
+            recordBytes(CatalogOperation.LOAD_FROM_JSON_FILE, fileSizeForMetrics(filename), 0);
+            recordRows(CatalogOperation.LOAD_FROM_JSON_FILE, rows, 0);
+        } catch (IOException e) {
+            reportFailure(CatalogOperation.LOAD_FROM_JSON_FILE, e);
+        } finally {
+            stopTimer(CatalogOperation.LOAD_FROM_JSON_FILE, start);
+        }
+    }
 
-        for (MovieData movie : movieMap.values()) {
-            JSONObject movieObject = new JSONObject();
-            movieObject.put("title", movie.title());
-            movieObject.put("director", movie.director());
-            movieObject.put("genre", movie.genre());
-            movieObject.put("yearReleased", movie.yearReleased());
-            movieObject.put("boxOfficeEarnings", movie.boxOfficeEarnings());
-            moviesArray.add(movieObject);
+    /**
+     * Завантажує дані про фільми з файлу.
+     * 
+     * @param filename ім'я файлу, з якого будуть завантажені дані про фільми
+     */
+    public void loadFromFile(String filename) {
+        long start = startTimer();
+        MovieCsvParser parser = new MovieCsvParser(this::insertMovie).onDeleted(this::deleteMovieIfPresent);
+        try (Reader reader = new FileReader(filename)) {
+            parser.parse(reader);
+        } catch (IOException e) {
+            reportFailure(CatalogOperation.LOAD_FROM_FILE, e);
+        } finally {
+            recordBytes(CatalogOperation.LOAD_FROM_FILE, fileSizeForMetrics(filename), 0);
+            recordRows(CatalogOperation.LOAD_FROM_FILE, parser.rowsParsed(), parser.rowsRejected());
+            stopTimer(CatalogOperation.LOAD_FROM_FILE, start);
         }
+    }
 
-        jsonObject.put("movies", moviesArray);
+    /**
+     * Завантажує дані про фільми з файлу, розбираючи його фрагменти паралельно
+     * в спільному пулі fork-join.
+     * 
+     * @param filename ім'я файлу, з якого будуть завантажені дані про фільми
+     * @see #loadFromFileParallel(String, ForkJoinPool)
+     */
+    public void loadFromFileParallel(String filename) {
+        loadFromFileParallel(filename, ForkJoinPool.commonPool());
+    }
 
-        try (FileWriter file = new FileWriter(filename)) {
-            file.write(jsonObject.toJSONString());
-            System.out.println("JSON file created: " + jsonObject);
+    /**
+     * Завантажує дані про фільми з файлу, розбираючи його фрагменти паралельно.
+     * Файл ділиться на фрагменти по межах рядків; фільми додаються в порядку
+     * файлу, тож повторювані назви й надгробки обробляються так само, як у
+     * loadFromFile, а додавання перекривається з розбором наступних фрагментів.
+     * 
+     * @param filename ім'я файлу, з якого будуть завантажені дані про фільми
+     * @param pool     пул потоків для розбору фрагментів
+     */
+    public void loadFromFileParallel(String filename, ForkJoinPool pool) {
+        long start = startTimer();
+        try {
+            ParallelMovieLoader.Result result = ParallelMovieLoader.load(Path.of(filename), pool, this::insertMovie,
+                    this::deleteMovieIfPresent);
+            recordBytes(CatalogOperation.LOAD_FROM_FILE_PARALLEL, fileSizeForMetrics(filename), 0);
+            recordRows(CatalogOperation.LOAD_FROM_FILE_PARALLEL, result.rowsParsed(), result.rowsRejected());
         } catch (IOException e) {
-            e.printStackTrace();
+            reportFailure(CatalogOperation.LOAD_FROM_FILE_PARALLEL, e);
+        } finally {
+            stopTimer(CatalogOperation.LOAD_FROM_FILE_PARALLEL, start);
         }
     }
 
-    public void loadFromJsonFile(String filename) {
-        JSONParser parser = new JSONParser();
+    /**
+     * Знаходить фільм у файлі за його назвою.
+     * 
+     * @param filename ім'я файлу, в якому буде виконуватися пошук
+     * @param title    назва фільму для пошуку
+     * @return об'єкт MovieData, якщо фільм знайдено, інакше null
+     */
+    public MovieData findMovieByTitleFromFile(String filename, String title) {
+        long start = startTimer();
+        try {
+            if (fileLookupCache.isEnabled()) {
+                return fileLookupCache.get(filename, title, () -> readMovieFromFile(filename, title));
+            }
+            return readMovieFromFile(filename, title);
+        } catch (IOException e) {
+            reportFailure(CatalogOperation.FIND_MOVIE_BY_TITLE_FROM_FILE, e);
+            return null;
+        } finally {
+            stopTimer(CatalogOperation.FIND_MOVIE_BY_TITLE_FROM_FILE, start);
+        }
+    }
+
+    /**
+     * Шукає фільм у файлі через індекс назв або читанням усього файлу.
+     */
+    private MovieData readMovieFromFile(String filename, String title) throws IOException {
+        MovieData[] found = new MovieData[1];
+        MovieRowHandler handler = (movieTitle, director, genre, yearReleased, boxOfficeEarnings) -> {
+            if (found[0] == null) {
+                found[0] = new MovieData(movieTitle, director, genre, yearReleased, boxOfficeEarnings);
+            }
+        };
+        if (fileIndexEnabled) {
+            fileIndex(filename).find(title, handler);
+        } else {
+            try (Reader reader = new FileReader(filename)) {
+                new MovieCsvParser(handler).onlyTitle(title).onDeleted(deleted -> found[0] = null).parse(reader);
+            }
+        }
+        return found[0];
+    }
 
-        try (FileReader reader = new FileReader(filename)) {
-            JSONObject jsonObject = (JSONObject) parser.parse(reader);
-            JSONArray moviesArray = (JSONArray) jsonObject.get("movies");
+    /**
+     * Задає розмір кешу результатів findMovieByTitleFromFile. Повторні пошуки
+     * тих самих назв у незміненому файлі не читають файл; найдавніше використані
+     * записи витісняються. Кеш файлу скидається, коли керівництво змінює файл
+     * (saveToFile, addMovieToFile, removeMovieFromFile, сеанси дописування,
+     * ущільнення) або коли змінилися розмір чи час модифікації файлу.
+     * 
+     * @param maxEntries найбільша кількість назв у кеші; 0 вимикає кеш
+     */
+    public void setFileLookupCacheSize(int maxEntries) {
+        fileLookupCache.setMaxSize(maxEntries);
+    }
+
+    /**
+     * Повертає кількість влучань, промахів і витіснень кешу пошуку фільмів у файлах.
+     * 
+     * @return статистика кешу
+     */
+    public LookupCacheStats fileLookupCacheStats() {
+        return fileLookupCache.stats();
+    }
 
-            for (Object obj : moviesArray) {
-                JSONObject movieObject = (JSONObject) obj;
-                String title = (String) movieObject.get("title");
-                String director = (String) movieObject.get("director");
-                String genre = (String) movieObject.get("genre");
-                int yearReleased = ((Long) movieObject.get("yearReleased")).intValue();
-                double boxOfficeEarnings = (double) movieObject.get("boxOfficeEarnings");
+    /**
+     * Вмикає або вимикає пошук фільмів у файлі через індекс назв.
+     * Індекс будується при першому пошуку, зберігається поруч із файлом
+     * (ім'я файлу + ".idx") і перебудовується, якщо файл змінився.
+     * 
+     * @param enabled true, щоб шукати фільми через індекс
+     */
+    public void setFileIndexEnabled(boolean enabled) {
+        this.fileIndexEnabled = enabled;
+        if (!enabled) {
+            fileIndexes.clear();
+        }
+    }
 
-                addMovie(title, director, genre, yearReleased, boxOfficeEarnings);
+    /**
+     * Повертає актуальний індекс файлу, за потреби відкриваючи чи перебудовуючи його.
+     */
+    private MovieFileIndex fileIndex(String filename) throws IOException {
+        MovieFileIndex index = fileIndexes.get(filename);
+        if (index == null || !index.isCurrent()) {
+            if (index != null) {
+                MovieFileIndex.invalidate(filename);
             }
+            index = MovieFileIndex.open(filename);
+            fileIndexes.put(filename, index);
+        }
+        return index;
+    }
 
-            System.out.println("JSON file loaded: " + jsonObject);
-        } catch (IOException | ParseException e) {
+    /**
+     * Скидає індекс і кеш пошуку файлу після його зміни.
+     */
+    private void invalidateFileIndex(String filename) {
+        fileIndexes.remove(filename);
+        fileLookupCache.invalidate(filename);
+        try {
+            MovieFileIndex.invalidate(filename);
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Завантажує дані про фільми з файлу.
+     * Зберігає знімок стійкого керівництва і видаляє сегменти журналу, які він заміняє.
+     * Зміни блокуються лише на час перемикання сегмента журналу; знімок
+     * записується з представлення на цей момент, поки зміни тривають.
+     */
+    public void checkpoint() {
+        long start = startTimer();
+        try {
+            WriteAheadLog log = requireWriteAheadLog();
+            long[] segment = new long[1];
+            try (SnapshotView view = openSnapshotView(() -> {
+                try {
+                    segment[0] = log.rotate();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })) {
+                log.writeSnapshot(segment[0], view);
+            } catch (IOException | UncheckedIOException e) {
+                reportFailure(CatalogOperation.CHECKPOINT, e);
+            }
+        } finally {
+            stopTimer(CatalogOperation.CHECKPOINT, start);
+        }
+    }
+
+    /**
+     * Атомарно зберігає у двійковий знімок стан керівництва на момент виклику.
+     * Знімок спершу записується в тимчасовий файл поруч, тож у файлі завжди
+     * лежить повний попередній або новий знімок. У паралельному режимі зі
+     * збереженням порядку додавання зміни під час запису не блокуються.
      * 
-     * @param filename ім'я файлу, з якого будуть завантажені дані про фільми
+     * @param filename ім'я файлу знімка
      */
-    public void loadFromFile(String filename) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 5) {
-                    String title = parts[0];
-                    String director = parts[1];
-                    String genre = parts[2];
-                    int yearReleased = Integer.parseInt(parts[3]);
-                    double boxOfficeEarnings = Double.parseDouble(parts[4]);
-                    addMovie(title, director, genre, yearReleased, boxOfficeEarnings);
+    public void saveSnapshot(String filename) {
+        Path target = Path.of(filename);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long start = startTimer();
+        try {
+            try (SnapshotView view = openSnapshotView(() -> { });
+                    MovieSnapshotWriter writer = new MovieSnapshotWriter(temp)) {
+                for (MovieData movie : view) {
+                    writer.write(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                            movie.boxOfficeEarnings());
                 }
+                writer.sync();
             }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            recordBytes(CatalogOperation.SAVE_SNAPSHOT, 0, fileSizeForMetrics(filename));
         } catch (IOException e) {
-            e.printStackTrace();
+            reportFailure(CatalogOperation.SAVE_SNAPSHOT, e);
+        } finally {
+            stopTimer(CatalogOperation.SAVE_SNAPSHOT, start);
         }
     }
 
     /**
-     * Знаходить фільм у файлі за його назвою.
+     * Запускає фонове періодичне збереження знімків методом saveSnapshot.
+     * Знімки записуються в окремому потоці, тож addMovie і removeMovie
+     * тим часом працюють без зупинки.
      * 
-     * @param filename ім'я файлу, в якому буде виконуватися пошук
-     * @param title    назва фільму для пошуку
-     * @return об'єкт MovieData, якщо фільм знайдено, інакше null
+     * @param filename ім'я файлу знімка
+     * @param period   проміжок між кінцем одного знімка і початком наступного
+     * @param unit     одиниця виміру проміжку
+     * @return дескриптор, закриття якого зупиняє збереження і чекає на поточний знімок
+     * @throws IllegalStateException якщо керівництво не потокобезпечне
      */
-    public MovieData findMovieByTitleFromFile(String filename, String title) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 5 && parts[0].equals(title)) {
-                    return new MovieData(parts[0], parts[1], parts[2], Integer.parseInt(parts[3]),
-                            Double.parseDouble(parts[4]));
-                }
+    public Closeable scheduleSnapshots(String filename, long period, TimeUnit unit) {
+        return scheduleInBackground(() -> saveSnapshot(filename), period, unit);
+    }
+
+    /**
+     * Запускає фонове періодичне виконання checkpoint() для стійкого керівництва.
+     * 
+     * @param period проміжок між кінцем одного знімка і початком наступного
+     * @param unit   одиниця виміру проміжку
+     * @return дескриптор, закриття якого зупиняє збереження і чекає на поточний знімок
+     * @throws IllegalStateException якщо керівництво не стійке
+     */
+    public Closeable scheduleCheckpoints(long period, TimeUnit unit) {
+        requireWriteAheadLog();
+        return scheduleInBackground(this::checkpoint, period, unit);
+    }
+
+    private Closeable scheduleInBackground(Runnable task, long period, TimeUnit unit) {
+        if (!concurrent) {
+            throw new IllegalStateException("Background snapshots require a concurrent catalog");
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-catalog-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Помилка одного знімка не повинна зупиняти наступні.
+                e.printStackTrace();
+            }
+        }, period, period, unit);
+        return () -> {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        };
+    }
+
+    /**
+     * Записує на диск накопичені зміни і закриває журнал стійкого керівництва.
+     * Після цього керівництво не можна змінювати.
+     */
+    public void closeWriteAheadLog() {
+        long start = startTimer();
+        try {
+            requireWriteAheadLog().close();
         } catch (IOException e) {
-            e.printStackTrace();
+            reportFailure(CatalogOperation.CLOSE_WRITE_AHEAD_LOG, e);
+        } finally {
+            stopTimer(CatalogOperation.CLOSE_WRITE_AHEAD_LOG, start);
+        }
+    }
+
+    private WriteAheadLog requireWriteAheadLog() {
+        WriteAheadLog log = writeAheadLog;
+        if (log == null) {
+            throw new IllegalStateException("Catalog is not durable");
         }
-        return null;
+        return log;
     }
 
     /**
@@ -227,38 +1887,262 @@ public class BoxOfficeGuideForMovies {
      */
     public void addMovieToFile(String filename, String title, String director, String genre, int yearReleased,
             double boxOfficeEarnings) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
-            writer.write(title + "," + director + "," + genre + "," + yearReleased + "," + boxOfficeEarnings + "\n");
+        long start = startTimer();
+        try {
+            invalidateFileIndex(filename);
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
+                writer.write(title + "," + director + "," + genre + "," + yearReleased + "," + boxOfficeEarnings
+                        + "\n");
+            } catch (IOException e) {
+                reportFailure(CatalogOperation.ADD_MOVIE_TO_FILE, e);
+            }
+        } finally {
+            stopTimer(CatalogOperation.ADD_MOVIE_TO_FILE, start);
+        }
+    }
+
+    /**
+     * Дописує до файлу з фільмами одразу кілька фільмів одним сеансом запису.
+     * 
+     * @param filename ім'я файлу, в який будуть додані фільми
+     * @param movies   фільми для додавання
+     */
+    public void addMoviesToFile(String filename, Collection<MovieData> movies) {
+        long start = startTimer();
+        try (MovieFileAppender appender = openAppendSession(filename)) {
+            for (MovieData movie : movies) {
+                appender.append(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                        movie.boxOfficeEarnings());
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            reportFailure(CatalogOperation.ADD_MOVIES_TO_FILE, e);
+        } finally {
+            stopTimer(CatalogOperation.ADD_MOVIES_TO_FILE, start);
+        }
+    }
+
+    /**
+     * Відкриває сеанс пакетного дописування фільмів у файл без примусового fsync.
+     * 
+     * @param filename ім'я файлу, в який будуть додаватися фільми
+     * @return сеанс дописування, який слід закрити після використання
+     * @throws IOException якщо файл не вдалося відкрити
+     */
+    public MovieFileAppender openAppendSession(String filename) throws IOException {
+        return openAppendSession(filename, MovieFileAppender.SyncPolicy.NONE);
+    }
+
+    /**
+     * Відкриває сеанс пакетного дописування фільмів у файл.
+     * 
+     * @param filename   ім'я файлу, в який будуть додаватися фільми
+     * @param syncPolicy політика скидання даних на диск
+     * @return сеанс дописування, який слід закрити після використання
+     * @throws IOException якщо файл не вдалося відкрити
+     */
+    public MovieFileAppender openAppendSession(String filename, MovieFileAppender.SyncPolicy syncPolicy)
+            throws IOException {
+        long start = startTimer();
+        try {
+            invalidateFileIndex(filename);
+            return new MovieFileAppender(filename, syncPolicy, () -> invalidateFileIndex(filename));
+        } finally {
+            stopTimer(CatalogOperation.OPEN_APPEND_SESSION, start);
         }
     }
 
     /**
      * Видаляє фільм з файлу з фільмами за його назвою.
+     * Якщо увімкнено видалення надгробками, до файлу лише дописується
+     * рядок-надгробок, а файл ущільнюється після накопичення заданої кількості
+     * надгробків. Інакше файл одразу перезаписується без рядків цього фільму.
      * 
      * @param filename ім'я файлу, з якого буде видалений фільм
      * @param title    назва фільму для видалення
      */
     public void removeMovieFromFile(String filename, String title) {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        long start = startTimer();
+        try {
+            invalidateFileIndex(filename);
+            try {
+                if (!tombstoneDeletes) {
+                    rewriteFile(filename, Map.of(title, Long.MAX_VALUE), false);
+                    return;
+                }
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
+                    writer.write(MovieCsvParser.tombstone(title) + "\n");
+                }
+                if (pendingTombstones.merge(filename, 1, Integer::sum) >= compactionThreshold) {
+                    compactFile(filename);
+                }
+            } catch (IOException e) {
+                reportFailure(CatalogOperation.REMOVE_MOVIE_FROM_FILE, e);
+            }
+        } finally {
+            stopTimer(CatalogOperation.REMOVE_MOVIE_FROM_FILE, start);
+        }
+    }
+
+    /**
+     * Вмикає або вимикає видалення фільмів з файлу дописуванням надгробків.
+     * 
+     * @param enabled true, щоб видаляти фільми надгробками
+     */
+    public void setTombstoneDeletes(boolean enabled) {
+        this.tombstoneDeletes = enabled;
+    }
+
+    /**
+     * Задає кількість надгробків, після якої файл автоматично ущільнюється.
+     * 
+     * @param threshold кількість надгробків, більша за нуль
+     */
+    public void setCompactionThreshold(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.compactionThreshold = threshold;
+    }
+
+    /**
+     * Ущільнює файл з фільмами: прибирає надгробки та видалені ними рядки.
+     * Решта рядків, зокрема некоректні, зберігаються без змін.
+     * 
+     * @param filename ім'я файлу для ущільнення
+     */
+    public void compactFile(String filename) {
+        long start = startTimer();
+        try {
+            invalidateFileIndex(filename);
+            pendingTombstones.remove(filename);
+            Map<String, Long> lastTombstones = new HashMap<>();
+            long bytesRead = fileSizeForMetrics(filename);
+            try {
+                try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+                    String line;
+                    for (long lineNumber = 0; (line = reader.readLine()) != null; lineNumber++) {
+                        if (line.startsWith(MovieCsvParser.TOMBSTONE_PREFIX)) {
+                            lastTombstones.put(line.substring(MovieCsvParser.TOMBSTONE_PREFIX.length()), lineNumber);
+                        }
+                    }
+                }
+                rewriteFile(filename, lastTombstones, true);
+                recordBytes(CatalogOperation.COMPACT_FILE, bytesRead, fileSizeForMetrics(filename));
+            } catch (IOException e) {
+                reportFailure(CatalogOperation.COMPACT_FILE, e);
+            }
+        } finally {
+            stopTimer(CatalogOperation.COMPACT_FILE, start);
+        }
+    }
+
+    /**
+     * Потоково перезаписує файл через тимчасовий файл, пропускаючи рядки фільмів,
+     * які стоять перед номером рядка, заданим для їхньої назви.
+     * 
+     * @param filename       ім'я файлу
+     * @param deletedBefore  номер рядка для кожної видаленої назви
+     * @param dropTombstones чи прибирати рядки-надгробки
+     */
+    private static void rewriteFile(String filename, Map<String, Long> deletedBefore, boolean dropTombstones)
+            throws IOException {
+        File file = new File(filename);
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try (BufferedReader reader = new BufferedReader(new FileReader(file));
+                BufferedWriter writer = new BufferedWriter(new FileWriter(temp))) {
             String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 5 && !parts[0].equals(title)) {
-                    lines.add(line);
+            for (long lineNumber = 0; (line = reader.readLine()) != null; lineNumber++) {
+                boolean tombstone = line.startsWith(MovieCsvParser.TOMBSTONE_PREFIX);
+                int comma = line.indexOf(',');
+                Long deleted = tombstone || comma < 0 ? null : deletedBefore.get(line.substring(0, comma));
+                if (tombstone ? !dropTombstones : deleted == null || deleted < lineNumber) {
+                    writer.write(line + "\n");
                 }
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            temp.delete();
+            throw e;
         }
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            for (String line : lines) {
-                writer.write(line + "\n");
-            }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Вмикає збирання метрик операцій: кількості викликів, гістограм тривалості,
+     * прочитаних і записаних байтів, розібраних і відхилених рядків, помилок
+     * вводу-виводу. Поки метрики вимкнені, операції лише перевіряють одне поле.
+     * 
+     * @return метрики керівництва; повторний виклик повертає ті самі метрики
+     */
+    public synchronized CatalogMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new CatalogMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Вимикає збирання метрик. Зібрані метрики залишаються доступними через
+     * об'єкт, який повернув enableMetrics().
+     */
+    public synchronized void disableMetrics() {
+        metrics = null;
+    }
+
+    /**
+     * Повертає час початку операції або 0, якщо метрики вимкнені.
+     */
+    private long startTimer() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    private void stopTimer(CatalogOperation operation, long start) {
+        CatalogMetrics current = metrics;
+        if (current != null && start != 0) {
+            current.recordOperation(operation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Виводить помилку операції, як і раніше, і передає її метрикам.
+     */
+    private void reportFailure(CatalogOperation operation, Exception error) {
+        error.printStackTrace();
+        CatalogMetrics current = metrics;
+        if (current != null) {
+            current.recordFailure(operation, error);
+        }
+    }
+
+    private void recordBytes(CatalogOperation operation, long read, long written) {
+        CatalogMetrics current = metrics;
+        if (current != null) {
+            current.recordBytes(operation, read, written);
+        }
+    }
+
+    private void recordRows(CatalogOperation operation, long parsed, long rejected) {
+        CatalogMetrics current = metrics;
+        if (current != null) {
+            current.recordRows(operation, parsed, rejected);
+        }
+    }
+
+    /**
+     * Повертає розмір файлу для метрик байтів або 0, якщо метрики вимкнені чи файлу немає.
+     */
+    private long fileSizeForMetrics(String filename) {
+        if (metrics == null) {
+            return 0;
+        }
+        try {
+            return Files.size(Path.of(filename));
         } catch (IOException e) {
-            e.printStackTrace();
+            return 0;
         }
     }
 
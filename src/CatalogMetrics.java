@@ -0,0 +1,207 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Метрики операцій керівництва: кількість викликів і помилок, гістограми
+ * тривалості, прочитані й записані байти, розібрані й відхилені рядки.
+ * Лічильники не блокують потоки, тож метрики можна збирати в робочому режимі.
+ * Метрики передаються зареєстрованим слухачам і доступні через JMX.
+ *
+ * @see BoxOfficeGuideForMovies#enableMetrics()
+ */
+public final class CatalogMetrics implements CatalogMetricsMXBean {
+    private final LatencyHistogram[] latencies = new LatencyHistogram[CatalogOperation.values().length];
+    private final LongAdder[] failures = new LongAdder[CatalogOperation.values().length];
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder rowsParsed = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
+    private final List<CatalogMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    CatalogMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Додає слухача метрик.
+     *
+     * @param listener слухач
+     */
+    public void addListener(CatalogMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Видаляє слухача метрик.
+     *
+     * @param listener слухач
+     */
+    public void removeListener(CatalogMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Реєструє метрики в платформному сервері MBean.
+     *
+     * @param objectName ім'я MBean, наприклад "movies:type=CatalogMetrics,name=main"
+     * @throws JMException якщо ім'я некоректне або вже зайняте
+     */
+    public void registerMBean(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    }
+
+    /**
+     * Прибирає метрики з платформного сервера MBean.
+     *
+     * @param objectName ім'я, під яким метрики зареєстровано
+     * @throws JMException якщо MBean з таким ім'ям немає
+     */
+    public void unregisterMBean(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+    }
+
+    /**
+     * Повертає знімок метрик операції.
+     *
+     * @param operation операція
+     * @return кількість викликів, помилок і перцентилі тривалості
+     */
+    public OperationStats stats(CatalogOperation operation) {
+        LatencyHistogram histogram = latencies[operation.ordinal()];
+        return new OperationStats(histogram.count(), failures[operation.ordinal()].sum(), histogram.total(),
+                histogram.percentile(0.5), histogram.percentile(0.99), histogram.percentile(0.999),
+                histogram.max());
+    }
+
+    void recordOperation(CatalogOperation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+        for (CatalogMetricsListener listener : listeners) {
+            listener.onOperation(operation, nanos);
+        }
+    }
+
+    void recordFailure(CatalogOperation operation, Throwable error) {
+        failures[operation.ordinal()].increment();
+        for (CatalogMetricsListener listener : listeners) {
+            listener.onFailure(operation, error);
+        }
+    }
+
+    void recordBytes(CatalogOperation operation, long read, long written) {
+        bytesRead.add(read);
+        bytesWritten.add(written);
+        for (CatalogMetricsListener listener : listeners) {
+            listener.onBytes(operation, read, written);
+        }
+    }
+
+    void recordRows(CatalogOperation operation, long parsed, long rejected) {
+        rowsParsed.add(parsed);
+        rowsRejected.add(rejected);
+        for (CatalogMetricsListener listener : listeners) {
+            listener.onRows(operation, parsed, rejected);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CatalogOperation operation : CatalogOperation.values()) {
+            long count = latencies[operation.ordinal()].count();
+            if (count > 0) {
+                counts.put(operation.methodName(), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CatalogOperation operation : CatalogOperation.values()) {
+            long count = failures[operation.ordinal()].sum();
+            if (count > 0) {
+                counts.put(operation.methodName(), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencyMicros() {
+        return latencyMicros(histogram -> (double) histogram.total() / histogram.count());
+    }
+
+    @Override
+    public Map<String, Double> getP50LatencyMicros() {
+        return latencyMicros(histogram -> histogram.percentile(0.5));
+    }
+
+    @Override
+    public Map<String, Double> getP99LatencyMicros() {
+        return latencyMicros(histogram -> histogram.percentile(0.99));
+    }
+
+    @Override
+    public Map<String, Double> getP999LatencyMicros() {
+        return latencyMicros(histogram -> histogram.percentile(0.999));
+    }
+
+    @Override
+    public Map<String, Double> getMaxLatencyMicros() {
+        return latencyMicros(LatencyHistogram::max);
+    }
+
+    private Map<String, Double> latencyMicros(ToDoubleFunction<LatencyHistogram> nanos) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (CatalogOperation operation : CatalogOperation.values()) {
+            LatencyHistogram histogram = latencies[operation.ordinal()];
+            if (histogram.count() > 0) {
+                values.put(operation.methodName(), nanos.applyAsDouble(histogram) / 1e3);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getRowsParsed() {
+        return rowsParsed.sum();
+    }
+
+    @Override
+    public long getRowsRejected() {
+        return rowsRejected.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            failures[i].reset();
+        }
+        bytesRead.reset();
+        bytesWritten.reset();
+        rowsParsed.reset();
+        rowsRejected.reset();
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Слухач метрик керівництва, наприклад для передавання їх до зовнішньої системи
+ * моніторингу. Методи викликаються в потоці, який виконав операцію, тож мають
+ * бути швидкими і не кидати винятків.
+ */
+public interface CatalogMetricsListener {
+    /**
+     * Викликається після кожної операції.
+     *
+     * @param operation операція
+     * @param nanos     тривалість операції в наносекундах
+     */
+    default void onOperation(CatalogOperation operation, long nanos) {
+    }
+
+    /**
+     * Викликається, коли операція з файлом завершилася помилкою.
+     *
+     * @param operation операція
+     * @param error     помилка
+     */
+    default void onFailure(CatalogOperation operation, Throwable error) {
+    }
+
+    /**
+     * Викликається після читання чи запису файлу.
+     *
+     * @param operation    операція
+     * @param bytesRead    кількість прочитаних байтів
+     * @param bytesWritten кількість записаних байтів
+     */
+    default void onBytes(CatalogOperation operation, long bytesRead, long bytesWritten) {
+    }
+
+    /**
+     * Викликається після розбору файлу з фільмами.
+     *
+     * @param operation    операція
+     * @param rowsParsed   кількість розібраних рядків фільмів
+     * @param rowsRejected кількість відхилених рядків з неправильною кількістю полів
+     */
+    default void onRows(CatalogOperation operation, long rowsParsed, long rowsRejected) {
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Map;
+
+/**
+ * Метрики керівництва, доступні через JMX. Мапи містять лише операції,
+ * які хоча б раз виконувалися, за іменами методів.
+ */
+public interface CatalogMetricsMXBean {
+    /**
+     * @return кількість викликів операцій
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return кількість помилок операцій з файлами
+     */
+    Map<String, Long> getFailureCounts();
+
+    /**
+     * @return середня тривалість операцій у мікросекундах
+     */
+    Map<String, Double> getMeanLatencyMicros();
+
+    /**
+     * @return медіана тривалості операцій у мікросекундах
+     */
+    Map<String, Double> getP50LatencyMicros();
+
+    /**
+     * @return 99-й перцентиль тривалості операцій у мікросекундах
+     */
+    Map<String, Double> getP99LatencyMicros();
+
+    /**
+     * @return 99.9-й перцентиль тривалості операцій у мікросекундах
+     */
+    Map<String, Double> getP999LatencyMicros();
+
+    /**
+     * @return найбільша тривалість операцій у мікросекундах
+     */
+    Map<String, Double> getMaxLatencyMicros();
+
+    /**
+     * @return кількість байтів, прочитаних з файлів
+     */
+    long getBytesRead();
+
+    /**
+     * @return кількість байтів, записаних у файли
+     */
+    long getBytesWritten();
+
+    /**
+     * @return кількість розібраних рядків фільмів
+     */
+    long getRowsParsed();
+
+    /**
+     * @return кількість відхилених рядків
+     */
+    long getRowsRejected();
+
+    /**
+     * Скидає всі метрики.
+     */
+    void reset();
+}
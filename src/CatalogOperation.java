@@ -0,0 +1,58 @@
+/**
+ * Операції керівництва касовими зборами, для яких збираються метрики.
+ * Кожна операція відповідає однойменному публічному методу BoxOfficeGuideForMovies;
+ * QUERY охоплює виконання запиту методом Query.list().
+ */
+public enum CatalogOperation {
+    ADD_MOVIE("addMovie"),
+    ADD_MOVIE_IF_ABSENT("addMovieIfAbsent"),
+    ADD_MOVIES("addMovies"),
+    REMOVE_MOVIE("removeMovie"),
+    REMOVE_MOVIE_IF_PRESENT("removeMovieIfPresent"),
+    FIND_MOVIE_BY_TITLE("findMovieByTitle"),
+    FIND_MOVIES_BY_DIRECTOR("findMoviesByDirector"),
+    FIND_MOVIES_BY_GENRE("findMoviesByGenre"),
+    FIND_MOVIES_BY_YEAR("findMoviesByYear"),
+    FIND_MOVIES_RELEASED_BETWEEN("findMoviesReleasedBetween"),
+    GET_ALL_MOVIES_SORTED_BY_BOX_OFFICE_EARNINGS("getAllMoviesSortedByBoxOfficeEarnings"),
+    MOVIES_BY_BOX_OFFICE_EARNINGS("moviesByBoxOfficeEarnings"),
+    TOP_BY_EARNINGS("topByEarnings"),
+    RANK_PAGE("rankPage"),
+    EARNINGS_STATS_BY_GENRE("earningsStatsByGenre"),
+    EARNINGS_STATS_BY_DIRECTOR("earningsStatsByDirector"),
+    EARNINGS_STATS_BY_YEAR("earningsStatsByYear"),
+    TO_COLUMNAR("toColumnar"),
+    QUERY("query"),
+    PRINT_MOVIE_INFO_BY_TITLE("printMovieInfoByTitle"),
+    PRINT_ALL_MOVIES("printAllMovies"),
+    SAVE_TO_FILE("saveToFile"),
+    SAVE_TO_BINARY_FILE("saveToBinaryFile"),
+    LOAD_FROM_BINARY_FILE("loadFromBinaryFile"),
+    SAVE_TO_JSON_FILE("saveToJsonFile"),
+    LOAD_FROM_JSON_FILE("loadFromJsonFile"),
+    LOAD_FROM_FILE("loadFromFile"),
+    LOAD_FROM_FILE_PARALLEL("loadFromFileParallel"),
+    FIND_MOVIE_BY_TITLE_FROM_FILE("findMovieByTitleFromFile"),
+    CHECKPOINT("checkpoint"),
+    SAVE_SNAPSHOT("saveSnapshot"),
+    SAVE_TO_MAPPED_FILE("saveToMappedFile"),
+    CLOSE_WRITE_AHEAD_LOG("closeWriteAheadLog"),
+    ADD_MOVIE_TO_FILE("addMovieToFile"),
+    ADD_MOVIES_TO_FILE("addMoviesToFile"),
+    OPEN_APPEND_SESSION("openAppendSession"),
+    REMOVE_MOVIE_FROM_FILE("removeMovieFromFile"),
+    COMPACT_FILE("compactFile");
+
+    private final String methodName;
+
+    CatalogOperation(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * @return ім'я методу керівництва
+     */
+    public String methodName() {
+        return methodName;
+    }
+}
@@ -0,0 +1,408 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Мапа "назва - фільм", яка зберігає фільми стовпцями: назви - String[],
+ * режисери й жанри - кодами словників в int[], роки - int[], касові збори -
+ * double[]. Фільм займає один рядок стовпців; індекс назв - хеш-таблиця номерів
+ * рядків у int[]. Об'єкти MovieData створюються лише під час читання, тож
+ * на фільм припадає кілька десятків байтів замість запису, вузла мапи й вузлів
+ * індексів. Пошук за режисером, жанром чи роком і статистика касових зборів
+ * проходять суцільними масивами примітивів без створення об'єктів.
+ * <p>
+ * Видалений рядок лише позначається порожньою назвою; стовпці ущільнюються,
+ * коли видалених рядків стає більше, ніж живих. Обхід повертає фільми в порядку
+ * додавання. Мапа не потокобезпечна.
+ */
+final class ColumnarMovieMap extends AbstractMap<String, BoxOfficeGuideForMovies.MovieData> {
+    /** Найбільша місткість індексу назв; таблиця заповнюється не більше ніж наполовину. */
+    private static final int MAX_TABLE_CAPACITY = 1 << 30;
+
+    /** Комірка індексу назв без рядка. */
+    private static final int EMPTY = 0;
+
+    /** Комірка індексу назв, рядок якої видалено. */
+    private static final int DELETED = -1;
+
+    /** Найменша кількість видалених рядків, з якої починається ущільнення. */
+    private static final int MIN_COMPACTION_ROWS = 1024;
+
+    private final StringDictionary directors = new StringDictionary();
+    private final StringDictionary genres = new StringDictionary();
+    private String[] titles;
+    private int[] directorCodes;
+    private int[] genreCodes;
+    private int[] years;
+    private double[] earnings;
+    /** Кількість зайнятих рядків, разом з видаленими. */
+    private int rows;
+    private int size;
+
+    /** Індекс назв: номер рядка + 1, EMPTY або DELETED. */
+    private int[] table;
+    private int deletedSlots;
+
+    /**
+     * Створює порожню мапу.
+     *
+     * @param expectedSize очікувана кількість фільмів
+     */
+    ColumnarMovieMap(int expectedSize) {
+        allocateColumns(Math.max(16, expectedSize));
+        table = new int[tableCapacityFor(expectedSize)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String title && findSlot(title) >= 0;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData get(Object key) {
+        if (!(key instanceof String title)) {
+            return null;
+        }
+        int slot = findSlot(title);
+        return slot < 0 ? null : movie(table[slot] - 1);
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData put(String key, BoxOfficeGuideForMovies.MovieData value) {
+        BoxOfficeGuideForMovies.MovieData previous = remove(key);
+        insert(value);
+        return previous;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData putIfAbsent(String key, BoxOfficeGuideForMovies.MovieData value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            return movie(table[slot] - 1);
+        }
+        insert(value);
+        return null;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData remove(Object key) {
+        if (!(key instanceof String title)) {
+            return null;
+        }
+        int slot = findSlot(title);
+        if (slot < 0) {
+            return null;
+        }
+        int row = table[slot] - 1;
+        BoxOfficeGuideForMovies.MovieData movie = movie(row);
+        titles[row] = null;
+        table[slot] = DELETED;
+        size--;
+        deletedSlots++;
+        int deadRows = rows - size;
+        if (deadRows > size && deadRows >= MIN_COMPACTION_ROWS) {
+            compact();
+        }
+        return movie;
+    }
+
+    @Override
+    public void clear() {
+        titles = null;
+        directorCodes = null;
+        genreCodes = null;
+        years = null;
+        earnings = null;
+        allocateColumns(16);
+        rows = 0;
+        size = 0;
+        deletedSlots = 0;
+        table = new int[tableCapacityFor(0)];
+    }
+
+    @Override
+    public Set<Map.Entry<String, BoxOfficeGuideForMovies.MovieData>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, BoxOfficeGuideForMovies.MovieData>> iterator() {
+                return new Iterator<>() {
+                    private int row = nextLive(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < rows;
+                    }
+
+                    @Override
+                    public Map.Entry<String, BoxOfficeGuideForMovies.MovieData> next() {
+                        if (row >= rows) {
+                            throw new NoSuchElementException();
+                        }
+                        BoxOfficeGuideForMovies.MovieData movie = movie(row);
+                        row = nextLive(row + 1);
+                        return new SimpleImmutableEntry<>(movie.title(), movie);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @param director режисер
+     * @return фільми режисера в порядку додавання
+     */
+    List<BoxOfficeGuideForMovies.MovieData> findByDirector(String director) {
+        Integer code = directors.codeOf(director);
+        return code == null ? new ArrayList<>() : moviesWhere(row -> directorCodes[row] == code);
+    }
+
+    /**
+     * @param genre жанр
+     * @return фільми жанру в порядку додавання
+     */
+    List<BoxOfficeGuideForMovies.MovieData> findByGenre(String genre) {
+        Integer code = genres.codeOf(genre);
+        return code == null ? new ArrayList<>() : moviesWhere(row -> genreCodes[row] == code);
+    }
+
+    /**
+     * @param fromYear перший рік виходу (включно)
+     * @param toYear   останній рік виходу (включно)
+     * @return фільми, які вийшли в цьому проміжку, в порядку додавання
+     */
+    List<BoxOfficeGuideForMovies.MovieData> findReleasedBetween(int fromYear, int toYear) {
+        return moviesWhere(row -> years[row] >= fromYear && years[row] <= toYear);
+    }
+
+    /**
+     * @return статистика касових зборів за режисерами в порядку першої появи режисера
+     */
+    Map<String, EarningsStats> earningsStatsByDirector() {
+        return statsByCode(directorCodes, directors);
+    }
+
+    /**
+     * @return статистика касових зборів за жанрами в порядку першої появи жанру
+     */
+    Map<String, EarningsStats> earningsStatsByGenre() {
+        return statsByCode(genreCodes, genres);
+    }
+
+    /**
+     * @return статистика касових зборів за роками, впорядкована за роками
+     */
+    Map<Integer, EarningsStats> earningsStatsByYear() {
+        Map<Integer, EarningsAccumulator> accumulators = new TreeMap<>();
+        for (int row = nextLive(0); row < rows; row = nextLive(row + 1)) {
+            accumulators.computeIfAbsent(years[row], year -> new EarningsAccumulator()).add(earnings[row]);
+        }
+        Map<Integer, EarningsStats> result = new TreeMap<>();
+        accumulators.forEach((year, accumulator) -> result.put(year, accumulator.stats(Set.of())));
+        return result;
+    }
+
+    /**
+     * Копіює стовпці живих рядків у незмінний стовпцевий знімок без створення
+     * об'єктів MovieData. Знімок спільно використовує словники мапи: коди
+     * не звільняються, тож коди знімка залишаються дійсними.
+     *
+     * @return стовпцевий знімок фільмів у порядку додавання
+     */
+    ColumnarMovieStore toStore() {
+        if (rows != size) {
+            compact();
+        }
+        return new ColumnarMovieStore(size, Arrays.copyOf(titles, size), Arrays.copyOf(directorCodes, size),
+                Arrays.copyOf(genreCodes, size), Arrays.copyOf(years, size), Arrays.copyOf(earnings, size),
+                directors, genres);
+    }
+
+    private List<BoxOfficeGuideForMovies.MovieData> moviesWhere(IntPredicate predicate) {
+        List<BoxOfficeGuideForMovies.MovieData> movies = new ArrayList<>();
+        for (int row = nextLive(0); row < rows; row = nextLive(row + 1)) {
+            if (predicate.test(row)) {
+                movies.add(movie(row));
+            }
+        }
+        return movies;
+    }
+
+    /**
+     * Обчислює статистику за кодами словника за один прохід масивами примітивів.
+     */
+    private Map<String, EarningsStats> statsByCode(int[] codes, StringDictionary dictionary) {
+        // Код NULL_CODE (-1) зберігається в нульовій позиції масивів.
+        int groups = dictionary.size() + 1;
+        long[] counts = new long[groups];
+        double[] sums = new double[groups];
+        double[] mins = new double[groups];
+        double[] maxes = new double[groups];
+        int[] order = new int[groups];
+        int seen = 0;
+        for (int row = nextLive(0); row < rows; row = nextLive(row + 1)) {
+            int group = codes[row] + 1;
+            double value = earnings[row];
+            if (counts[group]++ == 0) {
+                order[seen++] = group;
+                mins[group] = value;
+                maxes[group] = value;
+            } else {
+                mins[group] = Math.min(mins[group], value);
+                maxes[group] = Math.max(maxes[group], value);
+            }
+            sums[group] += value;
+        }
+        Map<String, EarningsStats> result = new LinkedHashMap<>();
+        for (int i = 0; i < seen; i++) {
+            int group = order[i];
+            result.put(dictionary.decode(group - 1), new EarningsStats(counts[group], sums[group], mins[group],
+                    maxes[group]));
+        }
+        return result;
+    }
+
+    private int nextLive(int row) {
+        while (row < rows && titles[row] == null) {
+            row++;
+        }
+        return row;
+    }
+
+    private BoxOfficeGuideForMovies.MovieData movie(int row) {
+        return new BoxOfficeGuideForMovies.MovieData(titles[row], directors.decode(directorCodes[row]),
+                genres.decode(genreCodes[row]), years[row], earnings[row]);
+    }
+
+    /**
+     * Дописує фільм новим рядком і додає рядок до індексу назв.
+     */
+    private void insert(BoxOfficeGuideForMovies.MovieData movie) {
+        if ((long) (size + deletedSlots + 1) * 2 > table.length) {
+            rehash(tableCapacityFor(size + 1));
+        }
+        if (rows == titles.length) {
+            int capacity = growCapacity(rows);
+            if (capacity > rows) {
+                allocateColumns(capacity);
+            } else {
+                compact();
+            }
+        }
+        int row = rows++;
+        titles[row] = movie.title();
+        directorCodes[row] = directors.encode(movie.director());
+        genreCodes[row] = genres.encode(movie.genre());
+        years[row] = movie.yearReleased();
+        earnings[row] = movie.boxOfficeEarnings();
+        putSlot(movie.title(), row);
+        size++;
+    }
+
+    /**
+     * Зсуває живі рядки до початку стовпців у тому ж порядку і перебудовує індекс назв.
+     */
+    private void compact() {
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (titles[row] != null) {
+                titles[live] = titles[row];
+                directorCodes[live] = directorCodes[row];
+                genreCodes[live] = genreCodes[row];
+                years[live] = years[row];
+                earnings[live] = earnings[row];
+                live++;
+            }
+        }
+        Arrays.fill(titles, live, rows, null);
+        rows = live;
+        rehash(table.length);
+    }
+
+    /**
+     * Шукає комірку індексу з живим рядком цієї назви.
+     *
+     * @return номер комірки або -1
+     */
+    private int findSlot(String title) {
+        int mask = table.length - 1;
+        for (int slot = hash(title) & mask; ; slot = (slot + 1) & mask) {
+            int stored = table[slot];
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored != DELETED && title.equals(titles[stored - 1])) {
+                return slot;
+            }
+        }
+    }
+
+    private void putSlot(String title, int row) {
+        int mask = table.length - 1;
+        int slot = hash(title) & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        deletedSlots = 0;
+        for (int row = nextLive(0); row < rows; row = nextLive(row + 1)) {
+            putSlot(titles[row], row);
+        }
+    }
+
+    private void allocateColumns(int capacity) {
+        titles = titles == null ? new String[capacity] : Arrays.copyOf(titles, capacity);
+        directorCodes = directorCodes == null ? new int[capacity] : Arrays.copyOf(directorCodes, capacity);
+        genreCodes = genreCodes == null ? new int[capacity] : Arrays.copyOf(genreCodes, capacity);
+        years = years == null ? new int[capacity] : Arrays.copyOf(years, capacity);
+        earnings = earnings == null ? new double[capacity] : Arrays.copyOf(earnings, capacity);
+    }
+
+    /**
+     * Нова місткість стовпців: у півтора раза більша, але не більша за найбільшу кількість фільмів.
+     */
+    private static int growCapacity(int capacity) {
+        return (int) Math.min((long) capacity + (capacity >> 1) + 1, MAX_TABLE_CAPACITY / 2);
+    }
+
+    /**
+     * Найменша степінь двійки, за якої індекс назв заповнений не більше ніж наполовину.
+     *
+     * @throws IllegalStateException якщо стільки фільмів не вміщується в індекс
+     */
+    private static int tableCapacityFor(int entries) {
+        if (entries > MAX_TABLE_CAPACITY / 2) {
+            throw new IllegalStateException("Columnar catalog cannot hold more than " + MAX_TABLE_CAPACITY / 2
+                    + " movies");
+        }
+        int needed = Math.max(16, entries * 2);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    private static int hash(String title) {
+        int h = title.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Незмінний стовпцевий знімок керівництва касовими зборами. Кожне поле
+ * зберігається окремим масивом: рік - int[], касові збори - double[], а
+ * режисер і жанр - кодами словника в int[]. Агрегації та сортування проходять
+ * суцільними масивами примітивів замість обходу об'єктів MovieData.
+ * Фільм адресується номером рядка від 0 до size() - 1.
+ */
+public final class ColumnarMovieStore {
+    private final int size;
+    private final String[] titles;
+    private final int[] directorCodes;
+    private final int[] genreCodes;
+    private final int[] years;
+    private final double[] earnings;
+    private final StringDictionary directors;
+    private final StringDictionary genres;
+
+    /**
+     * Створює знімок над готовими стовпцями; масиви не копіюються.
+     */
+    ColumnarMovieStore(int size, String[] titles, int[] directorCodes, int[] genreCodes, int[] years,
+            double[] earnings, StringDictionary directors, StringDictionary genres) {
+        this.size = size;
+        this.titles = titles;
+        this.directorCodes = directorCodes;
+        this.genreCodes = genreCodes;
+        this.years = years;
+        this.earnings = earnings;
+        this.directors = directors;
+        this.genres = genres;
+    }
+
+    /**
+     * @return кількість фільмів
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row номер рядка
+     * @return назва фільму
+     */
+    public String title(int row) {
+        return titles[row];
+    }
+
+    /**
+     * @param row номер рядка
+     * @return режисер фільму
+     */
+    public String director(int row) {
+        return directors.decode(directorCodes[row]);
+    }
+
+    /**
+     * @param row номер рядка
+     * @return жанр фільму
+     */
+    public String genre(int row) {
+        return genres.decode(genreCodes[row]);
+    }
+
+    /**
+     * @param row номер рядка
+     * @return рік виходу фільму
+     */
+    public int yearReleased(int row) {
+        return years[row];
+    }
+
+    /**
+     * @param row номер рядка
+     * @return касові збори фільму
+     */
+    public double boxOfficeEarnings(int row) {
+        return earnings[row];
+    }
+
+    /**
+     * @return сума касових зборів усіх фільмів
+     */
+    public double totalEarnings() {
+        double total = 0;
+        for (int row = 0; row < size; row++) {
+            total += earnings[row];
+        }
+        return total;
+    }
+
+    /**
+     * @return сума касових зборів за жанрами
+     */
+    public Map<String, Double> totalEarningsByGenre() {
+        return totalsByCode(genreCodes, genres);
+    }
+
+    /**
+     * @return сума касових зборів за режисерами
+     */
+    public Map<String, Double> totalEarningsByDirector() {
+        return totalsByCode(directorCodes, directors);
+    }
+
+    /**
+     * @return сума касових зборів за роками виходу, впорядкована за роками
+     */
+    public Map<Integer, Double> totalEarningsByYear() {
+        Map<Integer, Double> totals = new TreeMap<>();
+        for (int row = 0; row < size; row++) {
+            totals.merge(years[row], earnings[row], Double::sum);
+        }
+        return totals;
+    }
+
+    /**
+     * Повертає номери рядків, впорядковані за спаданням касових зборів.
+     * Фільми з однаковими зборами залишаються в порядку рядків.
+     *
+     * @return номери рядків у порядку рейтингу
+     */
+    public int[] rankByEarnings() {
+        int[] rows = new int[size];
+        Arrays.setAll(rows, row -> row);
+        int[] buffer = new int[size];
+        // Висхідне сортування злиттям масиву номерів за ключем із double[].
+        for (int width = 1; width < size; width *= 2) {
+            for (int from = 0; from < size; from += 2 * width) {
+                int middle = Math.min(from + width, size);
+                int to = Math.min(from + 2 * width, size);
+                int left = from;
+                int right = middle;
+                for (int out = from; out < to; out++) {
+                    if (right >= to
+                            || (left < middle && Double.compare(earnings[rows[left]], earnings[rows[right]]) >= 0)) {
+                        buffer[out] = rows[left++];
+                    } else {
+                        buffer[out] = rows[right++];
+                    }
+                }
+            }
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+        return rows;
+    }
+
+    private Map<String, Double> totalsByCode(int[] codes, StringDictionary dictionary) {
+        double[] totals = new double[dictionary.size()];
+        boolean[] present = new boolean[totals.length];
+        double nullTotal = 0;
+        boolean nullPresent = false;
+        for (int row = 0; row < size; row++) {
+            int code = codes[row];
+            if (code == StringDictionary.NULL_CODE) {
+                nullTotal += earnings[row];
+                nullPresent = true;
+            } else {
+                totals[code] += earnings[row];
+                present[code] = true;
+            }
+        }
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            if (present[code]) {
+                result.put(dictionary.decode(code), totals[code]);
+            }
+        }
+        if (nullPresent) {
+            result.put(null, nullTotal);
+        }
+        return result;
+    }
+
+    /**
+     * Створює будівника стовпцевого знімка.
+     *
+     * @param expectedSize очікувана кількість фільмів
+     * @return новий будівник
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * Будівник стовпцевого знімка: фільми додаються по одному, масиви ростуть за потреби.
+     */
+    public static final class Builder {
+        private int size;
+        private String[] titles;
+        private int[] directorCodes;
+        private int[] genreCodes;
+        private int[] years;
+        private double[] earnings;
+        private final StringDictionary directors = new StringDictionary();
+        private final StringDictionary genres = new StringDictionary();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            titles = new String[capacity];
+            directorCodes = new int[capacity];
+            genreCodes = new int[capacity];
+            years = new int[capacity];
+            earnings = new double[capacity];
+        }
+
+        /**
+         * Додає фільм наступним рядком.
+         *
+         * @param title             назва фільму
+         * @param director          режисер фільму
+         * @param genre             жанр фільму
+         * @param yearReleased      рік виходу фільму
+         * @param boxOfficeEarnings касові збори фільму
+         * @return цей будівник
+         */
+        public Builder add(String title, String director, String genre, int yearReleased, double boxOfficeEarnings) {
+            if (size == titles.length) {
+                int capacity = size * 2;
+                titles = Arrays.copyOf(titles, capacity);
+                directorCodes = Arrays.copyOf(directorCodes, capacity);
+                genreCodes = Arrays.copyOf(genreCodes, capacity);
+                years = Arrays.copyOf(years, capacity);
+                earnings = Arrays.copyOf(earnings, capacity);
+            }
+            titles[size] = title;
+            directorCodes[size] = directors.encode(director);
+            genreCodes[size] = genres.encode(genre);
+            years[size] = yearReleased;
+            earnings[size] = boxOfficeEarnings;
+            size++;
+            return this;
+        }
+
+        /**
+         * @return незмінний стовпцевий знімок з доданих фільмів
+         */
+        public ColumnarMovieStore build() {
+            return new ColumnarMovieStore(size, Arrays.copyOf(titles, size), Arrays.copyOf(directorCodes, size),
+                    Arrays.copyOf(genreCodes, size), Arrays.copyOf(years, size), Arrays.copyOf(earnings, size),
+                    directors, genres);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Set;
+
+/**
+ * Накопичувач статистики касових зборів однієї групи вторинного індексу.
+ * Група і її статистика змінюються разом під блокуванням накопичувача, тож
+ * статистика завжди відповідає вмісту групи. Кількість і сума оновлюються одразу;
+ * якщо видалено фільм з найменшими чи найбільшими зборами або з NaN чи нескінченними
+ * зборами, статистика перераховується за фільмами групи під час наступного читання.
+ */
+final class EarningsAccumulator {
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private boolean stale;
+
+    /**
+     * Додає фільм до групи і враховує його збори.
+     *
+     * @param group фільми групи
+     * @param movie доданий фільм
+     */
+    synchronized void add(Set<BoxOfficeGuideForMovies.MovieData> group, BoxOfficeGuideForMovies.MovieData movie) {
+        group.add(movie);
+        add(movie.boxOfficeEarnings());
+    }
+
+    /**
+     * Прибирає фільм з групи і віднімає його збори.
+     *
+     * @param group фільми групи
+     * @param movie видалений фільм
+     */
+    synchronized void remove(Set<BoxOfficeGuideForMovies.MovieData> group, BoxOfficeGuideForMovies.MovieData movie) {
+        group.remove(movie);
+        double earnings = movie.boxOfficeEarnings();
+        count--;
+        if (count == 0) {
+            sum = 0;
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            stale = false;
+            return;
+        }
+        sum -= earnings;
+        // Віднімання NaN чи нескінченності не відновлює суму, а мінімум і максимум
+        // після NaN також NaN, тож у цих випадках статистика перераховується.
+        if (!(earnings > min && earnings < max) || !Double.isFinite(sum)) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Враховує збори фільму без зміни групи; використовується для
+     * одноразового підрахунку під час перегляду всіх фільмів.
+     *
+     * @param earnings касові збори фільму
+     */
+    synchronized void add(double earnings) {
+        count++;
+        sum += earnings;
+        min = Math.min(min, earnings);
+        max = Math.max(max, earnings);
+    }
+
+    /**
+     * Повертає поточну статистику групи.
+     *
+     * @param group фільми групи для перерахунку мінімуму й максимуму
+     * @return статистика або null, якщо група порожня
+     */
+    synchronized EarningsStats stats(Set<BoxOfficeGuideForMovies.MovieData> group) {
+        if (count == 0) {
+            return null;
+        }
+        if (stale) {
+            // Разом з мінімумом і максимумом перераховується сума, щоб не накопичувати
+            // похибку віднімань.
+            double newSum = 0;
+            double newMin = Double.POSITIVE_INFINITY;
+            double newMax = Double.NEGATIVE_INFINITY;
+            for (BoxOfficeGuideForMovies.MovieData movie : group) {
+                newSum += movie.boxOfficeEarnings();
+                newMin = Math.min(newMin, movie.boxOfficeEarnings());
+                newMax = Math.max(newMax, movie.boxOfficeEarnings());
+            }
+            sum = newSum;
+            min = newMin;
+            max = newMax;
+            stale = false;
+        }
+        return new EarningsStats(count, sum, min, max);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Статистика касових зборів групи фільмів.
+ *
+ * @param count кількість фільмів у групі
+ * @param sum   сума касових зборів
+ * @param min   найменші касові збори
+ * @param max   найбільші касові збори
+ */
+public record EarningsStats(long count, double sum, double min, double max) {
+    /**
+     * @return середні касові збори фільму групи
+     */
+    public double average() {
+        return sum / count;
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гістограма затримок у наносекундах з логарифмічно-лінійними кошиками,
+ * як у HdrHistogram: кожен проміжок [2^k, 2^(k+1)) ділиться на 64 рівні кошики,
+ * тож відносна похибка перцентилів не перевищує 1/64 за сталої пам'яті.
+ * Значення до 127 нс зберігаються точно, значення понад 2^40 нс (близько
+ * 18 хвилин) записуються як 2^40 - 1. Запис не блокує і не виділяє пам'ять.
+ */
+final class LatencyHistogram {
+    /** Кількість бітів номера кошика в межах степеня двійки. */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Найбільше значення, яке зберігається без обрізання. */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Записує одне значення.
+     *
+     * @param nanos затримка в наносекундах
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_VALUE)));
+        count.increment();
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return кількість записаних значень
+     */
+    long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return сума записаних значень
+     */
+    long total() {
+        return total.sum();
+    }
+
+    /**
+     * @return найбільше записане значення
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Повертає значення, не менше за яке не більше частки 1 - quantile записаних значень.
+     *
+     * @param quantile частка від 0 до 1
+     * @return верхня межа кошика перцентиля або 0, якщо значень немає
+     */
+    long percentile(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long recorded = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Скидає всі записані значення.
+     */
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Статистика кешу пошуку фільмів у файлах.
+ *
+ * @param hits      кількість пошуків, на які відповів кеш
+ * @param misses    кількість пошуків, для яких довелося читати файл
+ * @param evictions кількість записів, витіснених через обмеження розміру
+ * @param size      поточна кількість записів у кеші
+ * @param maxSize   найбільша кількість записів у кеші
+ */
+public record LookupCacheStats(long hits, long misses, long evictions, int size, int maxSize) {
+    /**
+     * @return частка пошуків, на які відповів кеш, або 0, якщо пошуків не було
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
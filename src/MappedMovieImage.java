@@ -0,0 +1,440 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Образ каталогу фільмів, призначений для відображення в пам'ять (mmap).
+ * Відкриття образу лише відображає файл і читає заголовок, тож не залежить
+ * від кількості фільмів; сторінки файлу підвантажує система під час звернень,
+ * а об'єкти MovieData створюються лише для фільмів, які справді прочитано.
+ * <p>
+ * Формат: заголовок (сигнатура int, версія int, кількість фільмів long, місткість
+ * хеш-таблиці long, зміщення хеш-таблиці, рейтингу і записів long, кінець записів long),
+ * хеш-таблиця назв, рейтинг, записи фільмів.
+ * <ul>
+ * <li>Комірка хеш-таблиці: хеш назви (int), резерв (int), зміщення запису + 1 (long,
+ * 0 - порожня комірка). Пошук лінійним пробуванням, таблиця заповнена не більше ніж наполовину.</li>
+ * <li>Рейтинг: зміщення записів (long) у порядку рейтингу за касовими зборами.</li>
+ * <li>Запис: назва, режисер і жанр як довжина (int, -2 для відсутнього значення)
+ * плюс байти UTF-8, рік (int) і касові збори (double), у порядку додавання фільмів.</li>
+ * </ul>
+ * Файл відображається сторінками по 1 ГБ. Запис ніколи не перетинає межу сторінки:
+ * якщо він не вміщується в залишок сторінки, залишок пропускається (позначкою -3,
+ * якщо для неї є місце). Таблиця і рейтинг вирівняні так, що числа теж не перетинають межу.
+ * <p>
+ * Файл образу не можна змінювати, поки він відображений; новий образ слід
+ * записувати в інший файл і перейменовувати.
+ */
+final class MappedMovieImage {
+    /** Сигнатура файлу образу. */
+    private static final int MAGIC = 0x424F4749;
+
+    /** Поточна версія формату образу. */
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    /** Розмір сторінки відображення в байтах. */
+    private static final long PAGE_SIZE = 1L << 30;
+
+    /** Розмір комірки хеш-таблиці. */
+    private static final int SLOT_SIZE = 16;
+
+    /** Довжина, яка позначає відсутній режисер чи жанр. */
+    private static final int NULL_LENGTH = -2;
+
+    /** Довжина, яка позначає пропущений залишок сторінки. */
+    private static final int PAGE_PADDING = -3;
+
+    /** Розмір буфера запису в байтах. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final ByteBuffer[] pages;
+    private final long size;
+    private final long capacity;
+    private final long tableOffset;
+    private final long rankingOffset;
+    private final long recordsOffset;
+    private final long recordsEnd;
+
+    private MappedMovieImage(ByteBuffer[] pages, long size, long capacity, long tableOffset, long rankingOffset,
+            long recordsOffset, long recordsEnd) {
+        this.pages = pages;
+        this.size = size;
+        this.capacity = capacity;
+        this.tableOffset = tableOffset;
+        this.rankingOffset = rankingOffset;
+        this.recordsOffset = recordsOffset;
+        this.recordsEnd = recordsEnd;
+    }
+
+    /**
+     * Відображає файл образу в пам'ять.
+     *
+     * @param file файл образу
+     * @return відкритий образ
+     * @throws IOException якщо файл не є образом каталогу або його не вдалося відобразити
+     */
+    static MappedMovieImage open(Path file) throws IOException {
+        ByteBuffer[] pages;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            pages = map(channel, FileChannel.MapMode.READ_ONLY);
+        }
+        if (pages.length == 0 || pages[0].limit() < HEADER_SIZE || pages[0].getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped movie catalog file");
+        }
+        ByteBuffer header = pages[0];
+        int version = header.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new IOException("Unsupported mapped movie catalog version " + version);
+        }
+        return new MappedMovieImage(pages, header.getLong(8), header.getLong(16), header.getLong(24),
+                header.getLong(32), header.getLong(40), header.getLong(48));
+    }
+
+    /**
+     * Записує образ каталогу. Записи йдуть у порядку обходу movies, рейтинг
+     * будується сортуванням тих самих фільмів.
+     *
+     * @param file         файл образу; наявний файл перезаписується
+     * @param movies       фільми каталогу
+     * @param rankingOrder порядок рейтингу
+     * @throws IOException якщо виникла помилка запису
+     */
+    static void write(Path file, Iterable<BoxOfficeGuideForMovies.MovieData> movies,
+            Comparator<BoxOfficeGuideForMovies.MovieData> rankingOrder) throws IOException {
+        List<BoxOfficeGuideForMovies.MovieData> ranking = new ArrayList<>();
+        movies.forEach(ranking::add);
+        int count = ranking.size();
+        long capacity = Math.max(16, Long.highestOneBit(Math.max(1, count * 2L - 1)) << 1);
+        long tableOffset = HEADER_SIZE;
+        long rankingOffset = tableOffset + capacity * SLOT_SIZE;
+        long recordsOffset = rankingOffset + (long) count * Long.BYTES;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long recordsEnd = writeRecords(channel, ranking, recordsOffset);
+            if (channel.size() < recordsEnd) {
+                channel.write(ByteBuffer.allocate(1), recordsEnd - 1);
+            }
+            ByteBuffer[] pages = map(channel, FileChannel.MapMode.READ_WRITE);
+            MappedMovieImage image = new MappedMovieImage(pages, count, capacity, tableOffset, rankingOffset,
+                    recordsOffset, recordsEnd);
+            for (long address = image.nextRecord(recordsOffset); address < recordsEnd;
+                    address = image.nextRecord(image.skipRecord(address))) {
+                image.insert(image.title(address), address);
+            }
+            ranking.sort(rankingOrder);
+            for (int rank = 0; rank < count; rank++) {
+                putLong(pages, rankingOffset + (long) rank * Long.BYTES, image.find(ranking.get(rank).title()));
+            }
+            ByteBuffer header = pages[0];
+            header.putInt(Integer.BYTES, VERSION);
+            header.putLong(8, count).putLong(16, capacity).putLong(24, tableOffset).putLong(32, rankingOffset)
+                    .putLong(40, recordsOffset).putLong(48, recordsEnd);
+            for (ByteBuffer page : pages) {
+                ((MappedByteBuffer) page).force();
+            }
+            // Сигнатура записується останньою, тож незавершений образ не відкриється.
+            header.putInt(0, MAGIC);
+            ((MappedByteBuffer) header).force();
+        }
+    }
+
+    /**
+     * Записує фільми в кінець файлу, пропускаючи залишки сторінок, у які запис не вміщується.
+     *
+     * @return зміщення кінця записів
+     */
+    private static long writeRecords(FileChannel channel, Iterable<BoxOfficeGuideForMovies.MovieData> movies,
+            long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long bufferStart = position;
+        for (BoxOfficeGuideForMovies.MovieData movie : movies) {
+            byte[] title = movie.title().getBytes(StandardCharsets.UTF_8);
+            byte[] director = bytesOf(movie.director());
+            byte[] genre = bytesOf(movie.genre());
+            long length = 3L * Integer.BYTES + title.length + lengthOf(director) + lengthOf(genre)
+                    + Integer.BYTES + Double.BYTES;
+            if (length > PAGE_SIZE) {
+                throw new IOException("Movie record is too large for a catalog image");
+            }
+            long pageRemaining = PAGE_SIZE - position % PAGE_SIZE;
+            if (length > pageRemaining) {
+                if (pageRemaining >= Integer.BYTES) {
+                    bufferStart = put(channel, buffer, bufferStart, ByteBuffer.allocate(Integer.BYTES)
+                            .putInt(0, PAGE_PADDING));
+                }
+                bufferStart = flush(channel, buffer, bufferStart);
+                position += pageRemaining;
+                bufferStart = position;
+            }
+            ByteBuffer record = ByteBuffer.allocate((int) length);
+            putBytes(record, title);
+            putBytes(record, director);
+            putBytes(record, genre);
+            record.putInt(movie.yearReleased()).putDouble(movie.boxOfficeEarnings()).flip();
+            bufferStart = put(channel, buffer, bufferStart, record);
+            position += length;
+        }
+        flush(channel, buffer, bufferStart);
+        return position;
+    }
+
+    /**
+     * Дописує байти до буфера запису, скидаючи його у файл, якщо місця не вистачає.
+     *
+     * @return зміщення у файлі, з якого почнеться вміст буфера
+     */
+    private static long put(FileChannel channel, ByteBuffer buffer, long bufferStart, ByteBuffer bytes)
+            throws IOException {
+        if (buffer.remaining() < bytes.remaining()) {
+            bufferStart = flush(channel, buffer, bufferStart);
+        }
+        if (buffer.remaining() < bytes.remaining()) {
+            while (bytes.hasRemaining()) {
+                bufferStart += channel.write(bytes, bufferStart);
+            }
+            return bufferStart;
+        }
+        buffer.put(bytes);
+        return bufferStart;
+    }
+
+    /**
+     * Скидає буфер запису у файл.
+     *
+     * @return зміщення у файлі одразу після записаних байтів
+     */
+    private static long flush(FileChannel channel, ByteBuffer buffer, long bufferStart) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bufferStart += channel.write(buffer, bufferStart);
+        }
+        buffer.clear();
+        return bufferStart;
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer[] pages = new ByteBuffer[(int) ((fileSize + PAGE_SIZE - 1) / PAGE_SIZE)];
+        for (int i = 0; i < pages.length; i++) {
+            long start = i * PAGE_SIZE;
+            pages[i] = channel.map(mode, start, Math.min(PAGE_SIZE, fileSize - start));
+        }
+        return pages;
+    }
+
+    /**
+     * @return кількість фільмів в образі
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Знаходить фільм за назвою.
+     *
+     * @param title назва фільму
+     * @return фільм або null, якщо його немає
+     */
+    BoxOfficeGuideForMovies.MovieData get(String title) {
+        long address = find(title);
+        return address < 0 ? null : decode(address);
+    }
+
+    /**
+     * @param title назва фільму
+     * @return чи є фільм з такою назвою
+     */
+    boolean contains(String title) {
+        return find(title) >= 0;
+    }
+
+    /**
+     * Обходить фільми в порядку додавання.
+     */
+    Iterator<BoxOfficeGuideForMovies.MovieData> movies() {
+        return new Iterator<>() {
+            private long next = nextRecord(recordsOffset);
+
+            @Override
+            public boolean hasNext() {
+                return next < recordsEnd;
+            }
+
+            @Override
+            public BoxOfficeGuideForMovies.MovieData next() {
+                if (next >= recordsEnd) {
+                    throw new NoSuchElementException();
+                }
+                BoxOfficeGuideForMovies.MovieData movie = decode(next);
+                next = nextRecord(skipRecord(next));
+                return movie;
+            }
+        };
+    }
+
+    /**
+     * Обходить фільми в порядку рейтингу, починаючи з позиції from.
+     */
+    Iterator<BoxOfficeGuideForMovies.MovieData> ranking(long from) {
+        return new Iterator<>() {
+            private long rank = Math.min(Math.max(0, from), size);
+
+            @Override
+            public boolean hasNext() {
+                return rank < size;
+            }
+
+            @Override
+            public BoxOfficeGuideForMovies.MovieData next() {
+                if (rank >= size) {
+                    throw new NoSuchElementException();
+                }
+                return decode(getLong(rankingOffset + rank++ * Long.BYTES));
+            }
+        };
+    }
+
+    /**
+     * Шукає запис за назвою в хеш-таблиці.
+     *
+     * @return зміщення запису або -1
+     */
+    private long find(String title) {
+        int hash = hash(title);
+        byte[] bytes = null;
+        long mask = capacity - 1;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long slotOffset = tableOffset + slot * SLOT_SIZE;
+            long stored = getLong(slotOffset + 8);
+            if (stored == 0) {
+                return -1;
+            }
+            if (getInt(slotOffset) == hash) {
+                if (bytes == null) {
+                    bytes = title.getBytes(StandardCharsets.UTF_8);
+                }
+                if (titleEquals(stored - 1, bytes)) {
+                    return stored - 1;
+                }
+            }
+        }
+    }
+
+    private void insert(String title, long address) {
+        int hash = hash(title);
+        long mask = capacity - 1;
+        long slot = hash & mask;
+        while (getLong(tableOffset + slot * SLOT_SIZE + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        putLong(pages, tableOffset + slot * SLOT_SIZE, (long) hash << 32);
+        putLong(pages, tableOffset + slot * SLOT_SIZE + 8, address + 1);
+    }
+
+    /**
+     * Повертає зміщення першого запису не раніше position, пропускаючи залишки сторінок.
+     */
+    private long nextRecord(long position) {
+        if (position >= recordsEnd) {
+            return recordsEnd;
+        }
+        long pageRemaining = PAGE_SIZE - position % PAGE_SIZE;
+        if (pageRemaining < Integer.BYTES || getInt(position) == PAGE_PADDING) {
+            return position + pageRemaining;
+        }
+        return position;
+    }
+
+    /**
+     * @return зміщення одразу після запису
+     */
+    private long skipRecord(long address) {
+        ByteBuffer page = pages[(int) (address / PAGE_SIZE)];
+        int position = (int) (address % PAGE_SIZE);
+        for (int field = 0; field < 3; field++) {
+            position += Integer.BYTES + Math.max(0, page.getInt(position));
+        }
+        return address - address % PAGE_SIZE + position + Integer.BYTES + Double.BYTES;
+    }
+
+    private boolean titleEquals(long address, byte[] title) {
+        ByteBuffer page = pages[(int) (address / PAGE_SIZE)];
+        int position = (int) (address % PAGE_SIZE);
+        if (page.getInt(position) != title.length) {
+            return false;
+        }
+        return page.slice(position + Integer.BYTES, title.length).equals(ByteBuffer.wrap(title));
+    }
+
+    private String title(long address) {
+        ByteBuffer page = pages[(int) (address / PAGE_SIZE)];
+        return getString(page, (int) (address % PAGE_SIZE));
+    }
+
+    private BoxOfficeGuideForMovies.MovieData decode(long address) {
+        ByteBuffer page = pages[(int) (address / PAGE_SIZE)];
+        int position = (int) (address % PAGE_SIZE);
+        String title = getString(page, position);
+        position += Integer.BYTES + Math.max(0, page.getInt(position));
+        String director = getString(page, position);
+        position += Integer.BYTES + Math.max(0, page.getInt(position));
+        String genre = getString(page, position);
+        position += Integer.BYTES + Math.max(0, page.getInt(position));
+        return new BoxOfficeGuideForMovies.MovieData(title, director, genre, page.getInt(position),
+                page.getDouble(position + Integer.BYTES));
+    }
+
+    private static String getString(ByteBuffer page, int position) {
+        int length = page.getInt(position);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        page.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getInt(long offset) {
+        return pages[(int) (offset / PAGE_SIZE)].getInt((int) (offset % PAGE_SIZE));
+    }
+
+    private long getLong(long offset) {
+        return pages[(int) (offset / PAGE_SIZE)].getLong((int) (offset % PAGE_SIZE));
+    }
+
+    private static void putLong(ByteBuffer[] pages, long offset, long value) {
+        pages[(int) (offset / PAGE_SIZE)].putLong((int) (offset % PAGE_SIZE), value);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static int hash(String title) {
+        int h = title.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,220 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Мапа "назва - фільм" поверх відображеного в пам'ять образу каталогу.
+ * Образ лише читається; додані фільми зберігаються на купі, а назви фільмів
+ * образу, які видалено чи замінено, - у наборі прихованих назв.
+ * Обхід повертає фільми образу, а за ними додані фільми в порядку додавання.
+ * <p>
+ * Мапа не потокобезпечна.
+ */
+final class MappedMovieMap extends AbstractMap<String, BoxOfficeGuideForMovies.MovieData> {
+    private final MappedMovieImage image;
+    private final Set<String> hidden = new HashSet<>();
+    private final Map<String, BoxOfficeGuideForMovies.MovieData> added = new LinkedHashMap<>();
+    private final NavigableSet<BoxOfficeGuideForMovies.MovieData> addedRanking;
+    private boolean imageCleared;
+
+    /**
+     * @param image        відображений образ каталогу
+     * @param rankingOrder порядок рейтингу, з яким записано образ
+     */
+    MappedMovieMap(MappedMovieImage image, Comparator<BoxOfficeGuideForMovies.MovieData> rankingOrder) {
+        this.image = image;
+        this.addedRanking = new TreeSet<>(rankingOrder);
+    }
+
+    @Override
+    public int size() {
+        long imageSize = imageCleared ? 0 : image.size() - hidden.size();
+        return (int) Math.min(Integer.MAX_VALUE, imageSize + added.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String title)) {
+            return false;
+        }
+        return added.containsKey(title) || (inImage(title) && image.contains(title));
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData get(Object key) {
+        if (!(key instanceof String title)) {
+            return null;
+        }
+        BoxOfficeGuideForMovies.MovieData movie = added.get(title);
+        return movie != null || !inImage(title) ? movie : image.get(title);
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData put(String key, BoxOfficeGuideForMovies.MovieData value) {
+        BoxOfficeGuideForMovies.MovieData previous = remove(key);
+        added.put(key, value);
+        addedRanking.add(value);
+        return previous;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData putIfAbsent(String key, BoxOfficeGuideForMovies.MovieData value) {
+        BoxOfficeGuideForMovies.MovieData existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData remove(Object key) {
+        if (!(key instanceof String title)) {
+            return null;
+        }
+        BoxOfficeGuideForMovies.MovieData movie = added.remove(title);
+        if (movie != null) {
+            addedRanking.remove(movie);
+            return movie;
+        }
+        movie = inImage(title) ? image.get(title) : null;
+        if (movie != null) {
+            hidden.add(title);
+        }
+        return movie;
+    }
+
+    @Override
+    public void clear() {
+        imageCleared = true;
+        hidden.clear();
+        added.clear();
+        addedRanking.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<String, BoxOfficeGuideForMovies.MovieData>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, BoxOfficeGuideForMovies.MovieData>> iterator() {
+                Iterator<BoxOfficeGuideForMovies.MovieData> imageMovies = visible(
+                        imageCleared ? Collections.emptyIterator() : image.movies());
+                Iterator<BoxOfficeGuideForMovies.MovieData> addedMovies = added.values().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return imageMovies.hasNext() || addedMovies.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, BoxOfficeGuideForMovies.MovieData> next() {
+                        BoxOfficeGuideForMovies.MovieData movie = imageMovies.hasNext() ? imageMovies.next()
+                                : addedMovies.next();
+                        return new SimpleImmutableEntry<>(movie.title(), movie);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return MappedMovieMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Обходить фільми в порядку рейтингу, зливаючи рейтинг образу з доданими фільмами.
+     * Поки образ не змінювали, перші skip позицій пропускаються без читання їхніх записів.
+     *
+     * @param skip кількість позицій рейтингу, які слід пропустити
+     */
+    Iterator<BoxOfficeGuideForMovies.MovieData> ranking(long skip) {
+        if (imageCleared) {
+            return skipped(addedRanking.iterator(), skip);
+        }
+        if (hidden.isEmpty() && added.isEmpty()) {
+            return image.ranking(skip);
+        }
+        Iterator<BoxOfficeGuideForMovies.MovieData> imageRanking = visible(image.ranking(0));
+        Iterator<BoxOfficeGuideForMovies.MovieData> addedMovies = addedRanking.iterator();
+        Comparator<? super BoxOfficeGuideForMovies.MovieData> order = addedRanking.comparator();
+        return skipped(new Iterator<>() {
+            private BoxOfficeGuideForMovies.MovieData nextImage = imageRanking.hasNext() ? imageRanking.next() : null;
+            private BoxOfficeGuideForMovies.MovieData nextAdded = addedMovies.hasNext() ? addedMovies.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextImage != null || nextAdded != null;
+            }
+
+            @Override
+            public BoxOfficeGuideForMovies.MovieData next() {
+                if (nextImage == null && nextAdded == null) {
+                    throw new NoSuchElementException();
+                }
+                BoxOfficeGuideForMovies.MovieData movie;
+                if (nextAdded == null || (nextImage != null && order.compare(nextImage, nextAdded) <= 0)) {
+                    movie = nextImage;
+                    nextImage = imageRanking.hasNext() ? imageRanking.next() : null;
+                } else {
+                    movie = nextAdded;
+                    nextAdded = addedMovies.hasNext() ? addedMovies.next() : null;
+                }
+                return movie;
+            }
+        }, skip);
+    }
+
+    private boolean inImage(String title) {
+        return !imageCleared && !hidden.contains(title);
+    }
+
+    /**
+     * Пропускає фільми образу, приховані видаленням чи заміною.
+     */
+    private Iterator<BoxOfficeGuideForMovies.MovieData> visible(Iterator<BoxOfficeGuideForMovies.MovieData> movies) {
+        if (hidden.isEmpty()) {
+            return movies;
+        }
+        return new Iterator<>() {
+            private BoxOfficeGuideForMovies.MovieData next = advance();
+
+            private BoxOfficeGuideForMovies.MovieData advance() {
+                while (movies.hasNext()) {
+                    BoxOfficeGuideForMovies.MovieData movie = movies.next();
+                    if (!hidden.contains(movie.title())) {
+                        return movie;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public BoxOfficeGuideForMovies.MovieData next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                BoxOfficeGuideForMovies.MovieData movie = next;
+                next = advance();
+                return movie;
+            }
+        };
+    }
+
+    private static <T> Iterator<T> skipped(Iterator<T> iterator, long skip) {
+        for (long i = 0; i < skip && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        return iterator;
+    }
+}
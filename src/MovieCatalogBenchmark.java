@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Бенчмарк основних операцій BoxOfficeGuideForMovies: addMovie, findMovieByTitle,
+ * getAllMoviesSortedByBoxOfficeEarnings, saveToFile, saveToJsonFile, loadFromFile
+ * і loadFromJsonFile. Запускається для кожного розміру каталогу і розподілу даних;
+ * файлові операції працюють зі згенерованими файлами в тимчасовому каталозі.
+ * <p>
+ * Для кожної операції виводяться пропускна здатність (викликів і рядків за секунду),
+ * перцентилі затримки одного виклику і кількість байтів, виділених на виклик.
+ * Затримки коротких викликів включають накладні витрати System.nanoTime().
+ * <p>
+ * Як і JMH, бенчмарк запускає кожну пару розміру й розподілу в окремих
+ * дочірніх JVM (форках) з тими самими параметрами JVM, тож профіль JIT і купа
+ * одного розміру не впливають на інший. Кількість форків, проходів прогріву і
+ * вимірювальних проходів задається властивостями benchmark.forks (типово 1;
+ * 0 - виконувати в цій JVM), benchmark.warmups (типово 1) і benchmark.rounds
+ * (типово 3, щонайменше 1). Результати викликів споживає consume, щоб компілятор не вилучив
+ * їх як мертвий код.
+ * <p>
+ * Ті самі операції вимірює набір JMH у модулі benchmarks (MovieCatalogJmh); його
+ * результати слід вважати основними. Цей клас запускається лише javac і java, без
+ * Maven, і додатково виводить перцентилі затримки й виділену пам'ять на виклик.
+ * Його числа порівнюються між собою (до і після зміни), а не з результатами JMH.
+ * <p>
+ * Приклад: java -Xmx8g -Dbenchmark.forks=2 MovieCatalogBenchmark 1000,100000,1000000,10000000 uniform,skewed
+ */
+public class MovieCatalogBenchmark {
+    /** Кількість дочірніх JVM для кожної пари розміру й розподілу; 0 - виконувати в цій JVM. */
+    private static final int FORKS = Integer.getInteger("benchmark.forks", 1);
+
+    /** Кількість проходів прогріву. */
+    private static final int WARMUP_ROUNDS = Integer.getInteger("benchmark.warmups", 1);
+
+    /** Кількість проходів, які враховуються в результатах. */
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 3);
+
+    /** Кількість режисерів і жанрів у згенерованих даних. */
+    private static final int DIRECTORS = 10_000;
+    private static final int GENRES = 30;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Результати викликів, які не повинні бути вилучені компілятором як мертвий код. */
+    private static int blackhole;
+
+    /**
+     * Точка входу бенчмарку.
+     *
+     * @param args необов'язкові розміри каталогу через кому (типово 1000,100000,1000000)
+     *             і розподіли через кому: uniform, skewed (типово обидва)
+     * @throws IOException              якщо не вдалося створити тимчасові файли чи запустити форк
+     * @throws InterruptedException      якщо очікування форку перервано
+     * @throws IllegalArgumentException якщо кількість форків чи проходів прогріву від'ємна
+     *                                  або вимірювальних проходів менше одного
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (FORKS < 0 || WARMUP_ROUNDS < 0 || ROUNDS < 1) {
+            throw new IllegalArgumentException("benchmark.forks and benchmark.warmups must be non-negative and "
+                    + "benchmark.rounds must be at least 1");
+        }
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "1000,100000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        String[] distributions = (args.length > 1 ? args[1] : "uniform,skewed").split(",");
+        boolean forked = args.length > 2 && args[2].equals("--forked");
+        if (!forked) {
+            System.out.printf("%-38s %10s %-8s %14s %14s %10s %10s %10s %10s %14s%n", "operation", "size",
+                    "data", "calls/s", "rows/s", "p50 us", "p99 us", "p99.9 us", "max us", "alloc B/call");
+        }
+        for (int size : sizes) {
+            for (String distribution : distributions) {
+                if (forked || FORKS == 0) {
+                    run(size, distribution);
+                } else {
+                    for (int fork = 0; fork < FORKS; fork++) {
+                        fork(size, distribution);
+                    }
+                }
+            }
+        }
+        if (blackhole == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Запускає бенчмарк одного розміру й розподілу в новій JVM з тими самими
+     * параметрами і шляхом класів; дочірня JVM виводить результати в цей же вивід.
+     */
+    private static void fork(int size, String distribution) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MovieCatalogBenchmark.class.getName());
+        command.add(Integer.toString(size));
+        command.add(distribution);
+        command.add("--forked");
+        int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Benchmark fork for " + size + " " + distribution + " exited with " + exitCode);
+        }
+    }
+
+    /**
+     * Виконує бенчмарк одного розміру й розподілу у файлах тимчасового каталогу.
+     */
+    private static void run(int size, String distribution) throws IOException {
+        Path directory = Files.createTempDirectory("movie-benchmark");
+        Path csv = directory.resolve("movies.csv");
+        Path json = directory.resolve("movies.json");
+        try {
+            run(size, distribution, csv.toString(), json.toString());
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(json);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Споживає результат виклику так, щоб компілятор не міг його вилучити.
+     */
+    private static void consume(int value) {
+        blackhole ^= value;
+    }
+
+    private static void run(int size, String distribution, String csv, String json) {
+        Dataset data = Dataset.generate(size, distribution);
+        BoxOfficeGuideForMovies fixture = data.load();
+        fixture.saveToFile(csv);
+        fixture.saveToJsonFile(json);
+        int[] lookups = data.lookupOrder(size);
+        int sortCalls = Math.max(3, Math.min(100, 10_000_000 / size));
+        int fileCalls = size >= 1_000_000 ? 1 : 5;
+
+        Recorder add = new Recorder("addMovie");
+        Recorder find = new Recorder("findMovieByTitle");
+        Recorder sort = new Recorder("getAllMoviesSortedByBoxOfficeEarnings");
+        Recorder saveCsv = new Recorder("saveToFile");
+        Recorder saveJson = new Recorder("saveToJsonFile");
+        Recorder loadCsv = new Recorder("loadFromFile");
+        Recorder loadJson = new Recorder("loadFromJsonFile");
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            boolean measured = round >= WARMUP_ROUNDS;
+            BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+            add.measure(measured, size, 1, i -> catalog.addMovie(data.titles[i], data.directors[i], data.genres[i],
+                    data.years[i], data.earnings[i]));
+            find.measure(measured, size, 1,
+                    i -> consume(catalog.findMovieByTitle(data.titles[lookups[i]]).yearReleased()));
+            sort.measure(measured, sortCalls, size,
+                    i -> consume(catalog.getAllMoviesSortedByBoxOfficeEarnings().size()));
+            saveCsv.measure(measured, fileCalls, size, i -> catalog.saveToFile(csv));
+            saveJson.measure(measured, fileCalls, size, i -> catalog.saveToJsonFile(json));
+            loadCsv.measure(measured, fileCalls, size, i -> new BoxOfficeGuideForMovies().loadFromFile(csv));
+            loadJson.measure(measured, fileCalls, size, i -> new BoxOfficeGuideForMovies().loadFromJsonFile(json));
+        }
+        for (Recorder recorder : new Recorder[] {add, find, sort, saveCsv, saveJson, loadCsv, loadJson}) {
+            recorder.print(size, distribution);
+        }
+    }
+
+    /**
+     * Згенеровані поля фільмів у масивах, щоб сам набір даних не заважав вимірюванням.
+     */
+    private static final class Dataset {
+        private final String[] titles;
+        private final String[] directors;
+        private final String[] genres;
+        private final int[] years;
+        private final double[] earnings;
+        private final boolean skewed;
+
+        private Dataset(int size, boolean skewed) {
+            this.titles = new String[size];
+            this.directors = new String[size];
+            this.genres = new String[size];
+            this.years = new int[size];
+            this.earnings = new double[size];
+            this.skewed = skewed;
+        }
+
+        /**
+         * Рівномірний розподіл: режисери, жанри, роки і збори вибираються рівноймовірно.
+         * Скошений: кілька режисерів і жанрів мають більшість фільмів, а збори мають
+         * логнормальний розподіл з довгим хвостом.
+         */
+        static Dataset generate(int size, String distribution) {
+            boolean skewed = switch (distribution) {
+                case "uniform" -> false;
+                case "skewed" -> true;
+                default -> throw new IllegalArgumentException("Unknown distribution: " + distribution);
+            };
+            Dataset data = new Dataset(size, skewed);
+            Random random = new Random(42);
+            for (int i = 0; i < size; i++) {
+                data.titles[i] = "Movie " + i;
+                data.directors[i] = "Director " + data.pick(random, DIRECTORS);
+                data.genres[i] = "Genre " + data.pick(random, GENRES);
+                data.years[i] = 1950 + random.nextInt(75);
+                data.earnings[i] = skewed ? Math.rint(Math.exp(16 + 1.5 * random.nextGaussian()))
+                        : random.nextInt(300_000_000);
+            }
+            return data;
+        }
+
+        BoxOfficeGuideForMovies load() {
+            BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies(titles.length);
+            for (int i = 0; i < titles.length; i++) {
+                catalog.addMovie(titles[i], directors[i], genres[i], years[i], earnings[i]);
+            }
+            return catalog;
+        }
+
+        /**
+         * Порядок пошуку фільмів: рівномірний або зі скошеним доступом до "гарячих" назв.
+         */
+        int[] lookupOrder(int count) {
+            Random random = new Random(7);
+            int[] order = new int[count];
+            Arrays.setAll(order, i -> pick(random, titles.length));
+            return order;
+        }
+
+        private int pick(Random random, int bound) {
+            if (!skewed) {
+                return random.nextInt(bound);
+            }
+            double u = random.nextDouble();
+            return (int) (bound * u * u * u);
+        }
+    }
+
+    /**
+     * Накопичує затримки, виділену пам'ять і кількість рядків для однієї операції.
+     */
+    private static final class Recorder {
+        private final String operation;
+        private long[] latencies = new long[1024];
+        private int calls;
+        private long totalNanos;
+        private long allocatedBytes;
+        private long rows;
+
+        Recorder(String operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Виконує виклики операції і, якщо прохід вимірювальний, записує їхню затримку.
+         *
+         * @param measured    чи враховувати прохід у результатах
+         * @param calls       кількість викликів
+         * @param rowsPerCall кількість фільмів, які обробляє один виклик
+         * @param call        виклик операції з його номером
+         */
+        void measure(boolean measured, int calls, long rowsPerCall, IntConsumer call) {
+            if (measured && this.calls + calls > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, this.calls + calls));
+            }
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < calls; i++) {
+                long start = System.nanoTime();
+                call.accept(i);
+                long nanos = System.nanoTime() - start;
+                if (measured) {
+                    latencies[this.calls++] = nanos;
+                    totalNanos += nanos;
+                }
+            }
+            if (measured) {
+                allocatedBytes += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                rows += calls * rowsPerCall;
+            }
+        }
+
+        void print(int size, String distribution) {
+            long[] sorted = Arrays.copyOf(latencies, calls);
+            Arrays.sort(sorted);
+            double seconds = totalNanos / 1e9;
+            System.out.printf("%-38s %10d %-8s %,14.0f %,14.0f %10.1f %10.1f %10.1f %10.1f %,14d%n", operation, size,
+                    distribution, calls / seconds, rows / seconds, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e3, allocatedBytes / calls);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e3;
+        }
+    }
+}
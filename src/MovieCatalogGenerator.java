@@ -0,0 +1,304 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Детермінований генератор великих синтетичних каталогів фільмів для
+ * навантажувального тестування. Однакові налаштування і зерно завжди дають
+ * однакові фільми. Режисери й жанри вибираються за законом Ціпфа (кілька
+ * "популярних" значень мають більшість фільмів), касові збори мають розподіл
+ * Парето з важким хвостом, а назви унікальні й мають задану довжину.
+ * Фільми генеруються по одному і відразу записуються, тож пам'ять
+ * не залежить від кількості фільмів.
+ */
+public final class MovieCatalogGenerator {
+    /** Назви перших за популярністю жанрів; далі жанри нумеруються. */
+    private static final String[] GENRE_NAMES = {
+            "Drama", "Comedy", "Action", "Thriller", "Horror", "Romance", "Adventure", "Animation",
+            "Science Fiction", "Fantasy", "Crime", "Documentary", "Family", "Mystery", "War", "Western",
+            "Musical", "History", "Biography", "Sport"
+    };
+
+    private static final String VOWELS = "aeiouy";
+    private static final String CONSONANTS = "bcdfghjklmnprstvwz";
+
+    private final long seed;
+    private long movies = 1_000_000;
+    private int minTitleLength = 12;
+    private int maxTitleLength = 32;
+    private int directors = 50_000;
+    private double directorSkew = 1.0;
+    private int genres = GENRE_NAMES.length;
+    private double genreSkew = 1.2;
+    private int fromYear = 1950;
+    private int toYear = 2024;
+    private double minEarnings = 100_000;
+    private double earningsTailIndex = 1.16;
+
+    /**
+     * Створює генератор з типовими налаштуваннями: мільйон фільмів,
+     * 50 000 режисерів, 20 жанрів, роки 1950-2024.
+     *
+     * @param seed зерно генератора випадкових чисел
+     */
+    public MovieCatalogGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param movies кількість фільмів
+     * @return цей генератор
+     */
+    public MovieCatalogGenerator movies(long movies) {
+        if (movies < 0) {
+            throw new IllegalArgumentException("Number of movies must be non-negative");
+        }
+        this.movies = movies;
+        return this;
+    }
+
+    /**
+     * Задає довжину назв. Щоб назви були унікальними, кожна закінчується
+     * номером фільму, тож коротка назва може вийти довшою за maxLength.
+     *
+     * @param minLength найменша довжина назви
+     * @param maxLength найбільша довжина назви
+     * @return цей генератор
+     */
+    public MovieCatalogGenerator titleLength(int minLength, int maxLength) {
+        if (minLength < 1 || minLength > maxLength) {
+            throw new IllegalArgumentException("Invalid title length range");
+        }
+        this.minTitleLength = minLength;
+        this.maxTitleLength = maxLength;
+        return this;
+    }
+
+    /**
+     * @param count кількість різних режисерів
+     * @param skew  показник закону Ціпфа; 0 - рівномірний розподіл
+     * @return цей генератор
+     */
+    public MovieCatalogGenerator directors(int count, double skew) {
+        checkZipf(count, skew);
+        this.directors = count;
+        this.directorSkew = skew;
+        return this;
+    }
+
+    /**
+     * @param count кількість різних жанрів
+     * @param skew  показник закону Ціпфа; 0 - рівномірний розподіл
+     * @return цей генератор
+     */
+    public MovieCatalogGenerator genres(int count, double skew) {
+        checkZipf(count, skew);
+        this.genres = count;
+        this.genreSkew = skew;
+        return this;
+    }
+
+    /**
+     * @param fromYear перший рік виходу
+     * @param toYear   останній рік виходу
+     * @return цей генератор
+     */
+    public MovieCatalogGenerator years(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("Invalid year range");
+        }
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        return this;
+    }
+
+    /**
+     * Задає розподіл Парето касових зборів. Що менший індекс хвоста, то більша
+     * частка зборів припадає на кілька фільмів; 1.16 відповідає правилу 80/20.
+     *
+     * @param minEarnings найменші касові збори
+     * @param tailIndex   індекс хвоста, більший за нуль
+     * @return цей генератор
+     */
+    public MovieCatalogGenerator earnings(double minEarnings, double tailIndex) {
+        if (!(minEarnings > 0) || !(tailIndex > 0)) {
+            throw new IllegalArgumentException("Minimum earnings and tail index must be positive");
+        }
+        this.minEarnings = minEarnings;
+        this.earningsTailIndex = tailIndex;
+        return this;
+    }
+
+    private static void checkZipf(int count, double skew) {
+        if (count < 1 || skew < 0) {
+            throw new IllegalArgumentException("Count must be positive and skew non-negative");
+        }
+    }
+
+    /**
+     * Генерує фільми і передає їх обробнику по одному.
+     *
+     * @param handler обробник згенерованих фільмів
+     */
+    void generate(MovieRowHandler handler) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] directorCdf = zipfCdf(directors, directorSkew);
+        double[] genreCdf = zipfCdf(genres, genreSkew);
+        StringBuilder title = new StringBuilder(maxTitleLength + 16);
+        for (long i = 0; i < movies; i++) {
+            String suffix = " " + Long.toString(i, 36);
+            int length = minTitleLength + random.nextInt(maxTitleLength - minTitleLength + 1);
+            title.setLength(0);
+            appendWords(random, title, length - suffix.length());
+            title.append(suffix);
+
+            int director = sample(directorCdf, random.nextDouble());
+            int genre = sample(genreCdf, random.nextDouble());
+            int year = fromYear + random.nextInt(toYear - fromYear + 1);
+            double earnings = Math.rint(minEarnings / Math.pow(1 - random.nextDouble(), 1 / earningsTailIndex));
+            handler.row(title.toString(), "Director " + (director + 1),
+                    genre < GENRE_NAMES.length ? GENRE_NAMES[genre] : "Genre " + (genre + 1), year, earnings);
+        }
+    }
+
+    /**
+     * Додає згенеровані фільми до керівництва.
+     *
+     * @param catalog керівництво касовими зборами
+     */
+    public void addTo(BoxOfficeGuideForMovies catalog) {
+        generate(catalog::addMovie);
+    }
+
+    /**
+     * Записує фільми у файл у форматі saveToFile.
+     *
+     * @param filename ім'я файлу
+     * @throws IOException якщо виникла помилка запису
+     */
+    public void writeCsv(String filename) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            write((title, director, genre, yearReleased, boxOfficeEarnings) -> writer.write(title + "," + director
+                    + "," + genre + "," + yearReleased + "," + boxOfficeEarnings + "\n"));
+        }
+    }
+
+    /**
+     * Записує фільми у JSON-файл у форматі saveToJsonFile.
+     *
+     * @param filename ім'я файлу
+     * @throws IOException якщо виникла помилка запису
+     */
+    public void writeJson(String filename) throws IOException {
+        try (MovieJsonWriter writer = new MovieJsonWriter(Path.of(filename))) {
+            write(writer::write);
+        }
+    }
+
+    /**
+     * Записує фільми у двійковий знімок у форматі saveToBinaryFile.
+     *
+     * @param filename ім'я файлу
+     * @throws IOException якщо виникла помилка запису
+     */
+    public void writeBinary(String filename) throws IOException {
+        try (MovieSnapshotWriter writer = new MovieSnapshotWriter(Path.of(filename))) {
+            write(writer::write);
+        }
+    }
+
+    /**
+     * Запис одного фільму, який може завершитися помилкою вводу-виводу.
+     */
+    private interface RowWriter {
+        void write(String title, String director, String genre, int yearReleased, double boxOfficeEarnings)
+                throws IOException;
+    }
+
+    /**
+     * Генерує фільми і передає їх записувачу; перша помилка запису зупиняє генерацію.
+     */
+    private void write(RowWriter writer) throws IOException {
+        try {
+            generate((title, director, genre, yearReleased, boxOfficeEarnings) -> {
+                try {
+                    writer.write(title, director, genre, yearReleased, boxOfficeEarnings);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Накопичена функція розподілу закону Ціпфа для рангів 1..count.
+     */
+    private static double[] zipfCdf(int count, double skew) {
+        double[] cdf = new double[count];
+        double total = 0;
+        for (int rank = 0; rank < count; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cdf[rank] = total;
+        }
+        for (int rank = 0; rank < count; rank++) {
+            cdf[rank] /= total;
+        }
+        return cdf;
+    }
+
+    /**
+     * Повертає ранг (від нуля), якому відповідає рівномірне випадкове число u.
+     */
+    private static int sample(double[] cdf, double u) {
+        int index = Arrays.binarySearch(cdf, u);
+        return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * Дописує до назви слова з чергуванням приголосних і голосних загальною довжиною length.
+     */
+    private static void appendWords(SplittableRandom random, StringBuilder title, int length) {
+        int wordLength = 0;
+        for (int i = 0; i < length; i++) {
+            if (wordLength >= 3 && i < length - 1 && random.nextInt(6) == 0) {
+                title.append(' ');
+                wordLength = 0;
+                continue;
+            }
+            String letters = wordLength % 2 == 0 ? CONSONANTS : VOWELS;
+            char letter = letters.charAt(random.nextInt(letters.length()));
+            title.append(wordLength == 0 ? Character.toUpperCase(letter) : letter);
+            wordLength++;
+        }
+    }
+
+    /**
+     * Генерує каталог у файл з командного рядка.
+     *
+     * @param args кількість фільмів, формат (csv, json або binary), ім'я файлу
+     *             і необов'язкове зерно (типово 42)
+     * @throws IOException якщо виникла помилка запису
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: MovieCatalogGenerator <movies> <csv|json|binary> <file> [seed]");
+            return;
+        }
+        MovieCatalogGenerator generator = new MovieCatalogGenerator(args.length > 3 ? Long.parseLong(args[3]) : 42)
+                .movies(Long.parseLong(args[0]));
+        long start = System.nanoTime();
+        switch (args[1]) {
+            case "csv" -> generator.writeCsv(args[2]);
+            case "json" -> generator.writeJson(args[2]);
+            case "binary" -> generator.writeBinary(args[2]);
+            default -> throw new IllegalArgumentException("Unknown format: " + args[1]);
+        }
+        System.out.printf("Generated %s movies in %.1f s%n", args[0], (System.nanoTime() - start) / 1e9);
+    }
+}
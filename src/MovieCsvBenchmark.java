@@ -0,0 +1,76 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+/**
+ * Порівнює швидкість розбору файлу з фільмами через String.split
+ * та через MovieCsvParser. Дані генеруються в пам'яті, тому вимірюється
+ * саме розбір, а не диск.
+ */
+public class MovieCsvBenchmark {
+    /** Кількість вимірювань для кожного способу розбору. */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Точка входу бенчмарку.
+     *
+     * @param args необов'язкова кількість рядків (типово 1 000 000)
+     * @throws IOException якщо виникла помилка читання
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String data = generate(rows);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            long splitChecksum = parseWithSplit(data);
+            long splitNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long parserChecksum = parseWithParser(data);
+            long parserNanos = System.nanoTime() - start;
+
+            if (splitChecksum != parserChecksum) {
+                throw new IllegalStateException("Parsers disagree: " + splitChecksum + " != " + parserChecksum);
+            }
+            System.out.printf("Round %d: split %,.0f rows/s, MovieCsvParser %,.0f rows/s%n",
+                    round, rows * 1e9 / splitNanos, rows * 1e9 / parserNanos);
+        }
+    }
+
+    private static String generate(int rows) {
+        Random random = new Random(42);
+        StringBuilder data = new StringBuilder(rows * 48);
+        for (int i = 0; i < rows; i++) {
+            data.append("Movie ").append(i).append(",Director ").append(random.nextInt(10_000))
+                    .append(",Genre ").append(random.nextInt(30)).append(',').append(1950 + random.nextInt(75))
+                    .append(',').append((double) random.nextInt(300_000_000)).append('\n');
+        }
+        return data.toString();
+    }
+
+    private static long parseWithSplit(String data) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new StringReader(data))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 5) {
+                    checksum += parts[0].length() + parts[1].length() + parts[2].length()
+                            + Integer.parseInt(parts[3]) + (long) Double.parseDouble(parts[4]);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static long parseWithParser(String data) throws IOException {
+        long[] checksum = new long[1];
+        MovieCsvParser parser = new MovieCsvParser((title, director, genre, yearReleased, boxOfficeEarnings) ->
+                checksum[0] += title.length() + director.length() + genre.length()
+                        + yearReleased + (long) boxOfficeEarnings);
+        parser.parse(new StringReader(data));
+        return checksum[0];
+    }
+}
@@ -0,0 +1,305 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Потоковий розбирач файлів з фільмами у форматі, який записує saveToFile:
+ * один фільм на рядок, поля "назва,режисер,жанр,рік,касові збори" через кому.
+ * Рядок, який починається з керівного символу CAN (U+0018), за яким ідуть
+ * "deleted," і назва, - надгробок, який позначає фільм видаленим: рядки фільму,
+ * записані до нього, вважаються видаленими. Керівні символи, як і коми та
+ * переведення рядка, у назвах фільмів цього формату не підтримуються, тож
+ * жоден рядок фільму не збігається з надгробком.
+ * Поля шукаються прямо в буфері символів, а рік і касові збори розбираються
+ * без створення проміжних рядків.
+ */
+final class MovieCsvParser {
+    /** Початок рядка-надгробка; керівний символ на початку не може почати назву фільму. */
+    static final String TOMBSTONE_PREFIX = "\u0018deleted,";
+
+    /** Кількість полів у рядку. */
+    private static final int FIELDS = 5;
+
+    /** Початковий розмір буфера символів. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Найбільша мантиса, яка точно представляється типом double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Точні степені десяти, придатні для швидкого шляху розбору double. */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final MovieRowHandler handler;
+    private Consumer<String> tombstoneHandler;
+    private final int[] fieldEnds = new int[FIELDS];
+    private char[] titleFilter;
+    private boolean skipLineFeed;
+    private long rowsParsed;
+    private long rowsRejected;
+
+    /**
+     * Створює розбирач, який передає рядки заданому обробнику.
+     *
+     * @param handler обробник розібраних рядків
+     */
+    MovieCsvParser(MovieRowHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Повертає рядок-надгробок для фільму.
+     *
+     * @param title назва видаленого фільму
+     * @return рядок-надгробок без переведення рядка
+     */
+    static String tombstone(String title) {
+        return TOMBSTONE_PREFIX + title;
+    }
+
+    /**
+     * Обмежує розбір рядками та надгробками із заданою назвою. Решта рядків
+     * пропускається без створення жодних об'єктів.
+     *
+     * @param title назва фільму, рядки якого слід передавати обробнику
+     * @return цей розбирач
+     */
+    MovieCsvParser onlyTitle(String title) {
+        this.titleFilter = title.toCharArray();
+        return this;
+    }
+
+    /**
+     * Задає обробник надгробків. Без нього надгробки просто пропускаються.
+     *
+     * @param tombstoneHandler обробник, який отримує назву видаленого фільму
+     * @return цей розбирач
+     */
+    MovieCsvParser onDeleted(Consumer<String> tombstoneHandler) {
+        this.tombstoneHandler = tombstoneHandler;
+        return this;
+    }
+
+    /**
+     * @return кількість рядків, переданих обробнику
+     */
+    long rowsParsed() {
+        return rowsParsed;
+    }
+
+    /**
+     * @return кількість непорожніх рядків з неправильною кількістю полів
+     */
+    long rowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * Розбирає весь потік символів.
+     *
+     * @param reader джерело символів
+     * @throws IOException якщо виникла помилка читання
+     */
+    void parse(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        int end = 0;
+        int read;
+        while ((read = reader.read(buffer, end, buffer.length - end)) != -1) {
+            end += read;
+            int consumed = parse(buffer, 0, end, false);
+            end -= consumed;
+            if (end == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                System.arraycopy(buffer, consumed, buffer, 0, end);
+            }
+        }
+        if (end > 0) {
+            parse(buffer, 0, end, true);
+        }
+    }
+
+    /**
+     * Розбирає всі повні рядки у фрагменті буфера.
+     *
+     * @param buffer буфер символів
+     * @param from   початок фрагмента
+     * @param to     кінець фрагмента (не включно)
+     * @param last   чи є фрагмент кінцем даних; тоді останній рядок без переведення рядка теж розбирається
+     * @return позиція першого нерозібраного символу
+     */
+    int parse(char[] buffer, int from, int to, boolean last) {
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            if (c == '\n' || c == '\r') {
+                if (skipLineFeed && c == '\n' && i == lineStart) {
+                    skipLineFeed = false;
+                    lineStart = i + 1;
+                    continue;
+                }
+                parseLine(buffer, lineStart, i);
+                skipLineFeed = c == '\r';
+                lineStart = i + 1;
+            } else {
+                skipLineFeed = false;
+            }
+        }
+        if (last && lineStart < to) {
+            parseLine(buffer, lineStart, to);
+            lineStart = to;
+        }
+        return lineStart;
+    }
+
+    private void parseLine(char[] buffer, int start, int end) {
+        if (startsWithTombstone(buffer, start, end)) {
+            int titleStart = start + TOMBSTONE_PREFIX.length();
+            if (tombstoneHandler != null
+                    && (titleFilter == null || regionEquals(buffer, titleStart, end, titleFilter))) {
+                tombstoneHandler.accept(new String(buffer, titleStart, end - titleStart));
+            }
+            return;
+        }
+        // Як і String.split, порожні поля в кінці рядка не враховуються.
+        while (end > start && buffer[end - 1] == ',') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+        int fields = 0;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == ',') {
+                if (fields == FIELDS - 1) {
+                    rowsRejected++;
+                    return;
+                }
+                fieldEnds[fields++] = i;
+            }
+        }
+        if (fields != FIELDS - 1) {
+            rowsRejected++;
+            return;
+        }
+        fieldEnds[fields] = end;
+        if (titleFilter != null && !regionEquals(buffer, start, fieldEnds[0], titleFilter)) {
+            return;
+        }
+        String title = new String(buffer, start, fieldEnds[0] - start);
+        String director = new String(buffer, fieldEnds[0] + 1, fieldEnds[1] - fieldEnds[0] - 1);
+        String genre = new String(buffer, fieldEnds[1] + 1, fieldEnds[2] - fieldEnds[1] - 1);
+        int yearReleased = parseInt(buffer, fieldEnds[2] + 1, fieldEnds[3]);
+        double boxOfficeEarnings = parseDouble(buffer, fieldEnds[3] + 1, fieldEnds[4]);
+        rowsParsed++;
+        handler.row(title, director, genre, yearReleased, boxOfficeEarnings);
+    }
+
+    private static boolean startsWithTombstone(char[] buffer, int start, int end) {
+        if (end - start < TOMBSTONE_PREFIX.length()) {
+            return false;
+        }
+        for (int i = 0; i < TOMBSTONE_PREFIX.length(); i++) {
+            if (buffer[start + i] != TOMBSTONE_PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(char[] buffer, int start, int end, char[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Розбирає ціле число з тими ж правилами, що й Integer.parseInt.
+     */
+    static int parseInt(char[] buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw numberFormat(buffer, start, end);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberFormat(buffer, start, end);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw numberFormat(buffer, start, end);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw numberFormat(buffer, start, end);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Розбирає десяткове число. Звичайні записи на кшталт "2500000.0" чи "1.5E7"
+     * обчислюються точно прямо з буфера; все інше передається Double.parseDouble.
+     */
+    static double parseDouble(char[] buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        for (; i < end && buffer[i] >= '0' && buffer[i] <= '9'; i++, digits++) {
+            exact &= mantissa < MAX_EXACT_MANTISSA / 10;
+            mantissa = mantissa * 10 + (buffer[i] - '0');
+        }
+        if (i < end && buffer[i] == '.') {
+            for (i++; i < end && buffer[i] >= '0' && buffer[i] <= '9'; i++, digits++) {
+                exact &= mantissa < MAX_EXACT_MANTISSA / 10;
+                mantissa = mantissa * 10 + (buffer[i] - '0');
+                exponent--;
+            }
+        }
+        if (digits > 0 && i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            int exponentStart = ++i;
+            if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+                i++;
+            }
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            for (; i < end && buffer[i] >= '0' && buffer[i] <= '9' && exponentDigits < 4; i++, exponentDigits++) {
+                explicitExponent = explicitExponent * 10 + (buffer[i] - '0');
+            }
+            exact &= exponentDigits > 0;
+            exponent += exponentStart < end && buffer[exponentStart] == '-' ? -explicitExponent : explicitExponent;
+        }
+        if (!exact || digits == 0 || i != end || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(new String(buffer, start, end - start));
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static NumberFormatException numberFormat(char[] buffer, int start, int end) {
+        return new NumberFormatException("For input string: \"" + new String(buffer, start, end - start) + "\"");
+    }
+}
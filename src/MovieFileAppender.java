@@ -0,0 +1,131 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Сеанс пакетного дописування фільмів у файл у форматі saveToFile.
+ * Записи накопичуються у великому буфері й потрапляють у файл одним
+ * записом на кожне заповнення буфера, а не окремим відкриттям файлу на фільм.
+ */
+public final class MovieFileAppender implements Closeable {
+    /**
+     * Політика примусового скидання даних на диск (fsync).
+     */
+    public enum SyncPolicy {
+        /** Не викликати fsync; момент запису на диск визначає операційна система. */
+        NONE,
+        /** Викликати fsync після кожного flush() і при закритті. */
+        ON_FLUSH,
+        /** Викликати fsync лише один раз при закритті сеансу. */
+        ON_CLOSE
+    }
+
+    /** Розмір буфера записів у символах. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final BufferedWriter writer;
+    private final SyncPolicy syncPolicy;
+    private final Runnable onClose;
+    private boolean closed;
+
+    /**
+     * Відкриває сеанс дописування у файл, створюючи його за потреби.
+     *
+     * @param filename   ім'я файлу з фільмами
+     * @param syncPolicy політика скидання даних на диск
+     * @param onClose    дія, яка виконується після закриття сеансу
+     * @throws IOException якщо файл не вдалося відкрити
+     */
+    MovieFileAppender(String filename, SyncPolicy syncPolicy, Runnable onClose) throws IOException {
+        this.channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.writer = new BufferedWriter(Channels.newWriter(channel, newEncoder(), -1), BUFFER_SIZE);
+        this.syncPolicy = syncPolicy;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Створює кодувальник типового кодування, який, як і FileWriter,
+     * замінює символи, відсутні в цьому кодуванні.
+     *
+     * @return новий кодувальник
+     */
+    static CharsetEncoder newEncoder() {
+        return Charset.defaultCharset().newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Додає фільм до буфера сеансу.
+     *
+     * @param title             назва фільму
+     * @param director          режисер фільму
+     * @param genre             жанр фільму
+     * @param yearReleased      рік виходу фільму
+     * @param boxOfficeEarnings касові збори фільму
+     * @throws IOException якщо заповнений буфер не вдалося записати
+     */
+    public void append(String title, String director, String genre, int yearReleased, double boxOfficeEarnings)
+            throws IOException {
+        ensureOpen();
+        writer.write(title);
+        writer.write(',');
+        writer.write(director);
+        writer.write(',');
+        writer.write(genre);
+        writer.write(',');
+        writer.write(Integer.toString(yearReleased));
+        writer.write(',');
+        writer.write(Double.toString(boxOfficeEarnings));
+        writer.write('\n');
+    }
+
+    /**
+     * Записує накопичені фільми у файл.
+     *
+     * @throws IOException якщо виникла помилка запису
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+        writer.flush();
+        if (syncPolicy == SyncPolicy.ON_FLUSH) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Записує накопичені фільми і закриває файл.
+     *
+     * @throws IOException якщо виникла помилка запису
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.flush();
+            if (syncPolicy != SyncPolicy.NONE) {
+                channel.force(false);
+            }
+        } finally {
+            writer.close();
+            onClose.run();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Append session is closed");
+        }
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Індекс "назва фільму - зміщення рядка" для файлу у форматі saveToFile.
+ * Індекс зберігається поруч із файлом даних (ім'я файлу + ".idx") і вважається
+ * дійсним, доки не змінилися розмір і час модифікації файлу даних.
+ * Рядок читається позиційним читанням FileChannel за його зміщенням; файл даних
+ * відкривається лише на час побудови індексу чи одного пошуку і не залишається
+ * відображеним у пам'ять, тож його можна перезаписати чи замінити будь-коли
+ * (у Windows відкрите відображення не дає обрізати чи замінити файл).
+ */
+final class MovieFileIndex {
+    /** Сигнатура файлу індексу. */
+    private static final int MAGIC = 0x4D4F5649;
+
+    /** Версія формату файлу індексу. */
+    private static final int VERSION = 1;
+
+    /** Розмір буфера читання під час побудови індексу. */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /** Початковий розмір буфера читання одного рядка. */
+    private static final int ROW_BUFFER_SIZE = 256;
+
+    /** Байти початку рядка-надгробка. */
+    private static final byte[] TOMBSTONE = MovieCsvParser.TOMBSTONE_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final Path dataFile;
+    private final long dataLength;
+    private final long dataLastModified;
+    private final Map<String, Long> offsets;
+
+    private MovieFileIndex(Path dataFile, long dataLength, long dataLastModified, Map<String, Long> offsets) {
+        this.dataFile = dataFile;
+        this.dataLength = dataLength;
+        this.dataLastModified = dataLastModified;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Повертає шлях до файлу індексу для файлу даних.
+     *
+     * @param filename ім'я файлу даних
+     * @return шлях до файлу індексу
+     */
+    static Path sidecarOf(String filename) {
+        return Path.of(filename + ".idx");
+    }
+
+    /**
+     * Відкриває індекс файлу даних: читає збережений індекс, якщо він актуальний,
+     * інакше будує його заново і зберігає поруч із файлом даних.
+     *
+     * @param filename ім'я файлу даних
+     * @return індекс файлу даних
+     * @throws IOException якщо виникла помилка читання чи запису
+     */
+    static MovieFileIndex open(String filename) throws IOException {
+        Path dataFile = Path.of(filename);
+        long length = Files.size(dataFile);
+        long lastModified = Files.getLastModifiedTime(dataFile).toMillis();
+
+        Path sidecar = sidecarOf(filename);
+        Map<String, Long> offsets = Files.exists(sidecar) ? readSidecar(sidecar, length, lastModified) : null;
+        if (offsets == null) {
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                offsets = scan(channel, length);
+            }
+            writeSidecar(sidecar, length, lastModified, offsets);
+        }
+        return new MovieFileIndex(dataFile, length, lastModified, offsets);
+    }
+
+    /**
+     * Видаляє збережений індекс файлу даних.
+     *
+     * @param filename ім'я файлу даних
+     * @throws IOException якщо файл індексу не вдалося видалити
+     */
+    static void invalidate(String filename) throws IOException {
+        Files.deleteIfExists(sidecarOf(filename));
+    }
+
+    /**
+     * Перевіряє, чи не змінився файл даних після побудови індексу.
+     *
+     * @return true, якщо індекс відповідає поточному вмісту файлу
+     * @throws IOException якщо не вдалося прочитати атрибути файлу
+     */
+    boolean isCurrent() throws IOException {
+        return Files.exists(dataFile) && Files.size(dataFile) == dataLength
+                && Files.getLastModifiedTime(dataFile).toMillis() == dataLastModified;
+    }
+
+    /**
+     * Читає рядок фільму із заданою назвою позиційним читанням файлу даних.
+     *
+     * @param title   назва фільму
+     * @param handler обробник, який отримає поля знайденого рядка
+     * @return true, якщо фільм є в індексі
+     * @throws IOException якщо виникла помилка читання
+     */
+    boolean find(String title, MovieRowHandler handler) throws IOException {
+        Long offset = offsets.get(title);
+        if (offset == null) {
+            return false;
+        }
+        byte[] row = readRow(offset);
+        char[] buffer = new String(row, Charset.defaultCharset()).toCharArray();
+        new MovieCsvParser(handler).onlyTitle(title).parse(buffer, 0, buffer.length, true);
+        return true;
+    }
+
+    /**
+     * Читає байти рядка, який починається із заданого зміщення, без переведення рядка.
+     */
+    private byte[] readRow(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ROW_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            int scanned = 0;
+            while (true) {
+                int read = channel.read(buffer, offset + buffer.position());
+                for (; scanned < buffer.position(); scanned++) {
+                    if (isLineEnd(buffer.get(scanned))) {
+                        return Arrays.copyOf(buffer.array(), scanned);
+                    }
+                }
+                if (read < 0 || offset + buffer.position() >= dataLength) {
+                    return Arrays.copyOf(buffer.array(), (int) Math.min(scanned, dataLength - offset));
+                }
+                if (!buffer.hasRemaining()) {
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                }
+            }
+        }
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * Будує індекс за один прохід по файлу даних, читаючи його буфером сталого
+     * розміру. Як і findMovieByTitleFromFile, для повторюваних назв запам'ятовує
+     * перший рядок після останнього надгробка; рядки з неправильною кількістю
+     * полів пропускаються.
+     */
+    private static Map<String, Long> scan(FileChannel channel, long length) throws IOException {
+        Map<String, Long> offsets = new HashMap<>();
+        Charset charset = Charset.defaultCharset();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] line = new byte[ROW_BUFFER_SIZE];
+        int lineLength = 0;
+        long lineStart = 0;
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            if (channel.read(buffer, position) < 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining() && position < length) {
+                byte b = buffer.get();
+                if (isLineEnd(b)) {
+                    indexLine(offsets, line, lineLength, lineStart, charset);
+                    lineStart = position + 1;
+                    lineLength = 0;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+                position++;
+            }
+        }
+        if (lineStart < position) {
+            indexLine(offsets, line, lineLength, lineStart, charset);
+        }
+        return offsets;
+    }
+
+    /**
+     * Враховує в індексі один рядок файлу даних без переведення рядка.
+     */
+    private static void indexLine(Map<String, Long> offsets, byte[] line, int length, long lineStart,
+            Charset charset) {
+        int firstComma = -1;
+        int lastNonComma = -1;
+        int commas = 0;
+        for (int i = 0; i < length; i++) {
+            if (line[i] == ',') {
+                if (firstComma < 0) {
+                    firstComma = i;
+                }
+                commas++;
+            } else {
+                lastNonComma = i;
+            }
+        }
+        int trailingCommas = length - lastNonComma - 1;
+        if (isTombstone(line, length)) {
+            offsets.remove(new String(line, TOMBSTONE.length, length - TOMBSTONE.length, charset));
+        } else if (commas - trailingCommas == 4 && firstComma >= 0) {
+            offsets.putIfAbsent(new String(line, 0, firstComma, charset), lineStart);
+        }
+    }
+
+    private static boolean isTombstone(byte[] line, int length) {
+        return length >= TOMBSTONE.length && Arrays.equals(line, 0, TOMBSTONE.length, TOMBSTONE, 0, TOMBSTONE.length);
+    }
+
+    /**
+     * Читає збережений індекс. Індекс іншого файлу даних, а також обірваний чи
+     * пошкоджений файл індексу (збій чи брак місця під час запису) вважаються
+     * застарілими, тож індекс буде побудовано заново.
+     *
+     * @return зміщення рядків або null, якщо індекс слід перебудувати
+     */
+    private static Map<String, Long> readSidecar(Path sidecar, long length, long lastModified) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != length
+                    || in.readLong() != lastModified) {
+                return null;
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                return null;
+            }
+            // Пошкоджена кількість не повинна спричиняти величезного виділення пам'яті.
+            Map<String, Long> offsets = new HashMap<>(Math.min(count, 1 << 20) * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                int titleLength = in.readInt();
+                if (titleLength < 0) {
+                    return null;
+                }
+                byte[] title = new byte[titleLength];
+                in.readFully(title);
+                offsets.put(new String(title, StandardCharsets.UTF_8), in.readLong());
+            }
+            return offsets;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Записує індекс у тимчасовий файл і атомарно замінює ним файл індексу,
+     * тож читачі ніколи не бачать частково записаного індексу.
+     */
+    private static void writeSidecar(Path sidecar, long length, long lastModified, Map<String, Long> offsets)
+            throws IOException {
+        Path directory = sidecar.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, sidecar.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                byte[] title = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(title.length);
+                out.write(title);
+                out.writeLong(entry.getValue());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
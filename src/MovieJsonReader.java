@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Потоково читає JSON-документ {"movies":[...]}, який записує saveToJsonFile.
+ * Кожен елемент масиву movies передається обробнику одразу після прочитання,
+ * тому пам'ять не залежить від розміру файлу. Інші ключі документа та
+ * невідомі поля фільмів пропускаються.
+ */
+final class MovieJsonReader {
+    /** Розмір буфера читання в символах. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder token = new StringBuilder();
+    private int position;
+    private int limit;
+    private long consumed;
+
+    private MovieJsonReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Читає документ і передає кожен фільм обробнику.
+     *
+     * @param reader  джерело JSON-документа
+     * @param handler обробник прочитаних фільмів
+     * @return кількість прочитаних фільмів
+     * @throws IOException якщо документ некоректний або виникла помилка читання
+     */
+    static long read(Reader reader, MovieRowHandler handler) throws IOException {
+        return new MovieJsonReader(reader).readDocument(handler);
+    }
+
+    private long readDocument(MovieRowHandler handler) throws IOException {
+        long movies = 0;
+        expect('{');
+        if (peek() == '}') {
+            next();
+            return movies;
+        }
+        do {
+            String key = readString();
+            expect(':');
+            if (key.equals("movies") && peek() == '[') {
+                movies += readMovies(handler);
+            } else {
+                skipValue();
+            }
+        } while (nextSeparator('}'));
+        return movies;
+    }
+
+    private long readMovies(MovieRowHandler handler) throws IOException {
+        long movies = 0;
+        expect('[');
+        if (peek() == ']') {
+            next();
+            return movies;
+        }
+        do {
+            readMovie(handler);
+            movies++;
+        } while (nextSeparator(']'));
+        return movies;
+    }
+
+    private void readMovie(MovieRowHandler handler) throws IOException {
+        String title = null;
+        String director = null;
+        String genre = null;
+        String yearReleased = null;
+        String boxOfficeEarnings = null;
+        expect('{');
+        if (peek() != '}') {
+            do {
+                String key = readString();
+                expect(':');
+                switch (key) {
+                    case "title" -> title = readNullableString();
+                    case "director" -> director = readNullableString();
+                    case "genre" -> genre = readNullableString();
+                    case "yearReleased" -> yearReleased = readNumber();
+                    case "boxOfficeEarnings" -> boxOfficeEarnings = readNullableNumber();
+                    default -> skipValue();
+                }
+            } while (nextSeparator('}'));
+        } else {
+            next();
+        }
+        if (yearReleased == null || boxOfficeEarnings == null) {
+            throw error("Movie '" + title + "' has no yearReleased or boxOfficeEarnings");
+        }
+        try {
+            handler.row(title, director, genre, (int) Long.parseLong(yearReleased),
+                    Double.parseDouble(boxOfficeEarnings));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number for movie '" + title + "'");
+        }
+    }
+
+    /**
+     * Читає кому або кінцевий символ контейнера.
+     *
+     * @return true, якщо далі йде наступний елемент
+     */
+    private boolean nextSeparator(char close) throws IOException {
+        int c = next();
+        if (c == ',') {
+            return true;
+        }
+        if (c != close) {
+            throw error("Expected ',' or '" + close + "'");
+        }
+        return false;
+    }
+
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            next();
+            if (peek() == close) {
+                next();
+                return;
+            }
+            do {
+                if (close == '}') {
+                    readString();
+                    expect(':');
+                }
+                skipValue();
+            } while (nextSeparator(close));
+        } else if (c == '"') {
+            readString();
+        } else if (c == 't' || c == 'f' || c == 'n') {
+            readLiteral();
+        } else {
+            readNumber();
+        }
+    }
+
+    private String readNullableString() throws IOException {
+        if (peek() == 'n') {
+            readLiteral();
+            return null;
+        }
+        return readString();
+    }
+
+    /**
+     * Читає число або null; null записується замість нескінченних і NaN касових
+     * зборів, тож він читається як NaN.
+     */
+    private String readNullableNumber() throws IOException {
+        if (peek() == 'n') {
+            readLiteral();
+            return "NaN";
+        }
+        return readNumber();
+    }
+
+    private void readLiteral() throws IOException {
+        token.setLength(0);
+        while (position < limit || fill()) {
+            char c = buffer[position];
+            if (c < 'a' || c > 'z') {
+                break;
+            }
+            token.append(c);
+            position++;
+        }
+        String literal = token.toString();
+        if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null")) {
+            throw error("Unexpected literal '" + literal + "'");
+        }
+    }
+
+    private String readNumber() throws IOException {
+        peek();
+        token.setLength(0);
+        while (position < limit || fill()) {
+            char c = buffer[position];
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                break;
+            }
+            token.append(c);
+            position++;
+        }
+        if (token.length() == 0) {
+            throw error("Expected a value");
+        }
+        return token.toString();
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        token.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\') {
+                position++;
+            }
+            token.append(buffer, start, position - start);
+            if (position == limit) {
+                if (!fill()) {
+                    throw error("Unterminated string");
+                }
+                continue;
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return token.toString();
+            }
+            int escaped = read();
+            switch (escaped) {
+                case '"', '\\', '/' -> token.append((char) escaped);
+                case 'b' -> token.append('\b');
+                case 'f' -> token.append('\f');
+                case 'n' -> token.append('\n');
+                case 'r' -> token.append('\r');
+                case 't' -> token.append('\t');
+                case 'u' -> {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    token.append((char) code);
+                }
+                default -> throw error("Invalid escape character");
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * Пропускає пробільні символи і повертає наступний символ, не споживаючи його.
+     */
+    private int peek() throws IOException {
+        while (position < limit || fill()) {
+            char c = buffer[position];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    /**
+     * Пропускає пробільні символи і споживає наступний символ.
+     */
+    private int next() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Споживає наступний символ без пропуску пробільних.
+     */
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            throw error("Unexpected end of document");
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+        return limit > 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at character " + (consumed + position));
+    }
+}
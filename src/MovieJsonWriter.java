@@ -0,0 +1,124 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Потоково записує JSON-документ {"movies":[...]} по одному фільму,
+ * не будуючи документ у пам'яті. Як і JSONValue з json-simple, рядки null
+ * і нескінченні чи NaN касові збори записуються як null, тож документ
+ * завжди залишається коректним JSON.
+ */
+final class MovieJsonWriter implements Closeable {
+    /** Розмір буфера запису в символах. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private boolean first = true;
+
+    /**
+     * Створює файл (перезаписуючи наявний) і записує початок документа.
+     *
+     * @param file шлях до JSON-файлу
+     * @throws IOException якщо файл не вдалося створити
+     */
+    MovieJsonWriter(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = new BufferedWriter(Channels.newWriter(channel, MovieFileAppender.newEncoder(), -1), BUFFER_SIZE);
+        writer.write("{\"movies\":[");
+    }
+
+    /**
+     * Записує один фільм як елемент масиву movies.
+     *
+     * @param title             назва фільму
+     * @param director          режисер фільму
+     * @param genre             жанр фільму
+     * @param yearReleased      рік виходу фільму
+     * @param boxOfficeEarnings касові збори фільму
+     * @throws IOException якщо виникла помилка запису
+     */
+    void write(String title, String director, String genre, int yearReleased, double boxOfficeEarnings)
+            throws IOException {
+        writer.write(first ? "{\"title\":" : ",{\"title\":");
+        first = false;
+        writeString(title);
+        writer.write(",\"director\":");
+        writeString(director);
+        writer.write(",\"genre\":");
+        writeString(genre);
+        writer.write(",\"yearReleased\":");
+        writer.write(Integer.toString(yearReleased));
+        writer.write(",\"boxOfficeEarnings\":");
+        writer.write(Double.isFinite(boxOfficeEarnings) ? Double.toString(boxOfficeEarnings) : "null");
+        writer.write('}');
+    }
+
+    /**
+     * Записує кінець документа і закриває файл.
+     *
+     * @throws IOException якщо виникла помилка запису
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.write("]}");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Записує рядок у лапках з тим самим екрануванням, що й json-simple, або null.
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape = escape(c);
+            if (escape != null) {
+                writer.write(value, start, i - start);
+                writer.write(escape);
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+
+    private static String escape(char c) {
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '/':
+                return "\\/";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            default:
+                if (c <= '\u001F' || (c >= '\u007F' && c <= '\u009F') || (c >= '\u2000' && c <= '\u20FF')) {
+                    return String.format("\\u%04X", (int) c);
+                }
+                return null;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кеш результатів пошуку фільмів у файлах за назвою з витісненням найдавніше
+ * використаних записів (LRU). Кешуються й невдалі пошуки, бо вони теж
+ * коштують повного читання файлу.
+ * <p>
+ * Кожен файл має покоління: записи попередніх поколінь не використовуються
+ * і поступово витісняються. Нове покоління починається, коли керівництво
+ * змінює файл, або коли змінилися розмір чи час модифікації файлу, наприклад
+ * через зміни іншим процесом. Зміна, яка в межах точності часу модифікації
+ * не змінила розмір файлу, може залишитися непоміченою.
+ */
+final class MovieLookupCache {
+    private record Key(String filename, String title) {
+    }
+
+    private record Entry(long generation, BoxOfficeGuideForMovies.MovieData movie) {
+    }
+
+    private record FileVersion(long generation, long length, long lastModified) {
+    }
+
+    /**
+     * Читання фільму з файлу, яке виконується при промаху кешу.
+     */
+    interface Loader {
+        BoxOfficeGuideForMovies.MovieData load() throws IOException;
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, FileVersion> versions = new HashMap<>();
+    private int maxSize;
+    private long nextGeneration;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @return чи увімкнений кеш
+     */
+    synchronized boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Задає найбільшу кількість записів; зайві записи витісняються одразу.
+     *
+     * @param maxSize найбільша кількість записів; 0 вимикає кеш
+     */
+    synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must be non-negative");
+        }
+        this.maxSize = maxSize;
+        var iterator = entries.values().iterator();
+        while (entries.size() > maxSize) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+        if (maxSize == 0) {
+            versions.clear();
+        }
+    }
+
+    /**
+     * Повертає фільм з кешу або читає його завантажувачем і кешує результат.
+     * Завантажувач виконується без блокування кешу.
+     *
+     * @param filename ім'я файлу з фільмами
+     * @param title    назва фільму
+     * @param loader   читання фільму з файлу
+     * @return знайдений фільм або null
+     * @throws IOException якщо не вдалося прочитати атрибути файлу чи сам файл
+     */
+    BoxOfficeGuideForMovies.MovieData get(String filename, String title, Loader loader) throws IOException {
+        Path file = Path.of(filename);
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        Key key = new Key(filename, title);
+        long generation;
+        synchronized (this) {
+            FileVersion version = versions.get(filename);
+            if (version == null || version.length() != length || version.lastModified() != lastModified) {
+                version = new FileVersion(++nextGeneration, length, lastModified);
+                versions.put(filename, version);
+            }
+            generation = version.generation();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.generation() == generation) {
+                hits++;
+                return entry.movie();
+            }
+            misses++;
+        }
+        BoxOfficeGuideForMovies.MovieData movie = loader.load();
+        synchronized (this) {
+            FileVersion version = versions.get(filename);
+            // Якщо файл змінили під час читання, результат уже застарів.
+            if (maxSize > 0 && version != null && version.generation() == generation) {
+                entries.put(key, new Entry(generation, movie));
+            }
+        }
+        return movie;
+    }
+
+    /**
+     * Робить недійсними всі записи файлу після його зміни.
+     *
+     * @param filename ім'я файлу з фільмами
+     */
+    synchronized void invalidate(String filename) {
+        versions.remove(filename);
+    }
+
+    /**
+     * @return поточна статистика кешу
+     */
+    synchronized LookupCacheStats stats() {
+        return new LookupCacheStats(hits, misses, evictions, entries.size(), maxSize);
+    }
+}
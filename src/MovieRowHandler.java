@@ -0,0 +1,15 @@
+/**
+ * Обробник одного прочитаного запису про фільм.
+ */
+interface MovieRowHandler {
+    /**
+     * Викликається для кожного коректного запису.
+     *
+     * @param title             назва фільму
+     * @param director          режисер фільму
+     * @param genre             жанр фільму
+     * @param yearReleased      рік виходу фільму
+     * @param boxOfficeEarnings касові збори фільму
+     */
+    void row(String title, String director, String genre, int yearReleased, double boxOfficeEarnings);
+}
@@ -0,0 +1,100 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Читає двійковий знімок, записаний MovieSnapshotWriter.
+ */
+final class MovieSnapshotReader {
+    /** Початковий розмір буфера читання в байтах. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private MovieSnapshotReader(FileChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Читає всі фільми зі знімка і передає їх обробнику в порядку запису.
+     *
+     * @param file    шлях до файлу знімка
+     * @param handler обробник прочитаних фільмів
+     * @return кількість прочитаних фільмів
+     * @throws IOException якщо файл пошкоджений або виникла помилка читання
+     */
+    static long read(Path file, MovieRowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MovieSnapshotReader(channel).readAll(handler);
+        }
+    }
+
+    private long readAll(MovieRowHandler handler) throws IOException {
+        require(2 * Integer.BYTES);
+        if (buffer.getInt() != MovieSnapshotWriter.MAGIC) {
+            throw new IOException("Not a movie snapshot file");
+        }
+        int version = buffer.getInt();
+        if (version != MovieSnapshotWriter.VERSION) {
+            throw new IOException("Unsupported movie snapshot version " + version);
+        }
+        long records = 0;
+        String title;
+        while ((title = getString(false)) != null) {
+            String director = getString(true);
+            String genre = getString(true);
+            require(Integer.BYTES + Double.BYTES);
+            handler.row(title, director, genre, buffer.getInt(), buffer.getDouble());
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Читає рядок; для назви повертає null на кінці списку записів,
+     * для режисера чи жанру - якщо значення відсутнє.
+     */
+    private String getString(boolean nullable) throws IOException {
+        require(Integer.BYTES);
+        int length = buffer.getInt();
+        if (length == (nullable ? MovieSnapshotWriter.NULL_LENGTH : MovieSnapshotWriter.END_OF_RECORDS)) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupted movie snapshot record");
+        }
+        require(length);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Гарантує, що в буфері є щонайменше задана кількість непрочитаних байтів.
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(bytes);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated movie snapshot");
+            }
+        }
+        buffer.flip();
+    }
+}
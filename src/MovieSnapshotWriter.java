@@ -0,0 +1,134 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Записує двійковий знімок керівництва касовими зборами.
+ * <p>
+ * Формат: сигнатура (int), версія (int), далі записи фільмів: назва, режисер
+ * і жанр як довжина (int) плюс байти UTF-8, рік (int) і касові збори (double).
+ * Відсутній режисер чи жанр записується як довжина -2.
+ * Список записів завершується довжиною назви -1. Усі числа записуються
+ * у порядку байтів big-endian.
+ */
+final class MovieSnapshotWriter implements Closeable {
+    /** Сигнатура файлу знімка. */
+    static final int MAGIC = 0x424F4753;
+
+    /** Поточна версія формату знімка. */
+    static final int VERSION = 1;
+
+    /** Довжина назви, яка позначає кінець списку записів. */
+    static final int END_OF_RECORDS = -1;
+
+    /** Довжина, яка позначає відсутній (null) режисер чи жанр. */
+    static final int NULL_LENGTH = -2;
+
+    /** Розмір буфера запису в байтах. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long records;
+
+    /**
+     * Створює файл знімка (перезаписуючи наявний) і записує заголовок.
+     *
+     * @param file шлях до файлу знімка
+     * @throws IOException якщо файл не вдалося створити
+     */
+    MovieSnapshotWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * Записує один фільм.
+     *
+     * @param title             назва фільму
+     * @param director          режисер фільму
+     * @param genre             жанр фільму
+     * @param yearReleased      рік виходу фільму
+     * @param boxOfficeEarnings касові збори фільму
+     * @throws IOException якщо виникла помилка запису
+     */
+    void write(String title, String director, String genre, int yearReleased, double boxOfficeEarnings)
+            throws IOException {
+        putString(title);
+        putString(director);
+        putString(genre);
+        ensureRoom(Integer.BYTES + Double.BYTES);
+        buffer.putInt(yearReleased).putDouble(boxOfficeEarnings);
+        records++;
+    }
+
+    /**
+     * @return кількість записаних фільмів
+     */
+    long records() {
+        return records;
+    }
+
+    /**
+     * Записує ознаку кінця списку, скидає буфер і закриває файл.
+     *
+     * @throws IOException якщо виникла помилка запису
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            ensureRoom(Integer.BYTES);
+            buffer.putInt(END_OF_RECORDS);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Примусово записує файл на диск. Викликається перед close(), якщо знімок
+     * має пережити збій системи.
+     *
+     * @throws IOException якщо виникла помилка запису
+     */
+    void sync() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    private void putString(String value) throws IOException {
+        ensureRoom(Integer.BYTES);
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRoom(1);
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,457 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Мапа "назва - фільм", яка зберігає записи поза купою Java, у прямих буферах
+ * (ByteBuffer.allocateDirect). Хеш-індекс за назвою теж лежить поза купою,
+ * тож на купі залишаються лише кілька службових масивів, а об'єкти MovieData
+ * створюються під час читання. Обхід повертає фільми в порядку додавання.
+ * <p>
+ * Запис фільму: ознака живого запису (byte), назва, режисер і жанр як довжина
+ * (int, -1 для null) плюс байти UTF-8, рік (int), касові збори (double).
+ * Записи дописуються в сторінки; місце видалених записів повертається
+ * ущільненням, коли мертвих байтів стає більше, ніж живих. Хеш-таблиця
+ * розбита на кілька прямих буферів і адресується номерами комірок типу long,
+ * тож її розмір не обмежений 2 ГБ одного буфера.
+ * <p>
+ * Мапа не потокобезпечна.
+ */
+final class OffHeapMovieMap extends AbstractMap<String, BoxOfficeGuideForMovies.MovieData> {
+    /** Розмір однієї сторінки записів у байтах. */
+    private static final int PAGE_SIZE = 16 << 20;
+
+    /** Розмір комірки хеш-таблиці: хеш (int), резерв (int), адреса запису + 1 (long). */
+    private static final int SLOT_SIZE = 16;
+
+    /** Двійковий логарифм кількості комірок в одному буфері хеш-таблиці (1 ГБ). */
+    private static final int TABLE_CHUNK_SHIFT = 26;
+
+    /** Адреса порожньої комірки. */
+    private static final long EMPTY = 0;
+
+    /** Адреса комірки, з якої видалено запис. */
+    private static final long DELETED = -1;
+
+    private static final byte LIVE = 1;
+    private static final byte DEAD = 0;
+
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private int[] pageUsed = new int[4];
+    private final int tableChunkShift;
+    private ByteBuffer[] table;
+    private long capacity;
+    private int size;
+    private long deletedSlots;
+    private long liveBytes;
+    private long deadBytes;
+
+    /**
+     * Створює порожню мапу.
+     *
+     * @param expectedSize очікувана кількість фільмів
+     */
+    OffHeapMovieMap(int expectedSize) {
+        this(expectedSize, TABLE_CHUNK_SHIFT);
+    }
+
+    /**
+     * Створює порожню мапу із заданим розміром буферів хеш-таблиці; менші
+     * буфери дають змогу перевірити розбиття таблиці на малих каталогах.
+     *
+     * @param expectedSize    очікувана кількість фільмів
+     * @param tableChunkShift двійковий логарифм кількості комірок в одному буфері
+     */
+    OffHeapMovieMap(int expectedSize, int tableChunkShift) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must be non-negative");
+        }
+        this.tableChunkShift = tableChunkShift;
+        allocateTable(tableCapacityFor(expectedSize));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && findSlot(titleBytes((String) key), hash((String) key)) >= 0;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long slot = findSlot(titleBytes((String) key), hash((String) key));
+        return slot < 0 ? null : decode(addressAt(slot));
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData put(String key, BoxOfficeGuideForMovies.MovieData value) {
+        BoxOfficeGuideForMovies.MovieData previous = remove(key);
+        insert(value);
+        return previous;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData putIfAbsent(String key, BoxOfficeGuideForMovies.MovieData value) {
+        long slot = findSlot(titleBytes(key), hash(key));
+        if (slot >= 0) {
+            return decode(addressAt(slot));
+        }
+        insert(value);
+        return null;
+    }
+
+    @Override
+    public BoxOfficeGuideForMovies.MovieData remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long slot = findSlot(titleBytes((String) key), hash((String) key));
+        if (slot < 0) {
+            return null;
+        }
+        long address = addressAt(slot);
+        BoxOfficeGuideForMovies.MovieData movie = decode(address);
+        ByteBuffer page = pages.get(page(address));
+        page.put(offset(address), DEAD);
+        int length = recordLength(page, offset(address));
+        liveBytes -= length;
+        deadBytes += length;
+        chunk(slot).putLong(slotOffset(slot) + 8, DELETED);
+        size--;
+        deletedSlots++;
+        if (deadBytes > liveBytes && deadBytes > PAGE_SIZE) {
+            compact();
+        }
+        return movie;
+    }
+
+    @Override
+    public void clear() {
+        pages.clear();
+        pageUsed = new int[4];
+        size = 0;
+        deletedSlots = 0;
+        liveBytes = 0;
+        deadBytes = 0;
+        allocateTable(tableCapacityFor(0));
+    }
+
+    @Override
+    public Set<Map.Entry<String, BoxOfficeGuideForMovies.MovieData>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, BoxOfficeGuideForMovies.MovieData>> iterator() {
+                Iterator<Long> addresses = liveAddresses();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return addresses.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, BoxOfficeGuideForMovies.MovieData> next() {
+                        BoxOfficeGuideForMovies.MovieData movie = decode(addresses.next());
+                        return new SimpleImmutableEntry<>(movie.title(), movie);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Дописує запис у поточну сторінку і додає його адресу до хеш-таблиці.
+     */
+    private void insert(BoxOfficeGuideForMovies.MovieData movie) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap catalog cannot hold more than " + Integer.MAX_VALUE
+                    + " movies");
+        }
+        byte[] title = titleBytes(movie.title());
+        byte[] director = nullableBytes(movie.director());
+        byte[] genre = nullableBytes(movie.genre());
+        int length = 1 + 3 * Integer.BYTES + title.length + lengthOf(director) + lengthOf(genre)
+                + Integer.BYTES + Double.BYTES;
+        int pageIndex = pages.size() - 1;
+        if (pageIndex < 0 || pageUsed[pageIndex] + length > pages.get(pageIndex).capacity()) {
+            pageIndex = addPage(Math.max(PAGE_SIZE, length));
+        }
+        ByteBuffer page = pages.get(pageIndex);
+        int offset = pageUsed[pageIndex];
+        page.position(offset);
+        page.put(LIVE);
+        putBytes(page, title);
+        putBytes(page, director);
+        putBytes(page, genre);
+        page.putInt(movie.yearReleased());
+        page.putDouble(movie.boxOfficeEarnings());
+        pageUsed[pageIndex] = offset + length;
+        liveBytes += length;
+
+        if ((size + deletedSlots + 1L) * 2 > capacity) {
+            rehash(tableCapacityFor(size + 1L));
+        }
+        putSlot(hash(movie.title()), ((long) pageIndex << 32) | offset);
+        size++;
+    }
+
+    private int addPage(int pageSize) {
+        pages.add(ByteBuffer.allocateDirect(pageSize));
+        if (pages.size() > pageUsed.length) {
+            pageUsed = Arrays.copyOf(pageUsed, pageUsed.length * 2);
+        }
+        pageUsed[pages.size() - 1] = 0;
+        return pages.size() - 1;
+    }
+
+    /**
+     * Переписує живі записи в нові сторінки в тому ж порядку і перебудовує хеш-таблицю.
+     */
+    private void compact() {
+        List<BoxOfficeGuideForMovies.MovieData> movies = new ArrayList<>();
+        List<ByteBuffer> oldPages = new ArrayList<>(pages);
+        int[] oldUsed = pageUsed;
+        pages.clear();
+        pageUsed = new int[4];
+        size = 0;
+        deletedSlots = 0;
+        liveBytes = 0;
+        deadBytes = 0;
+        allocateTable(capacity);
+        for (int pageIndex = 0; pageIndex < oldPages.size(); pageIndex++) {
+            ByteBuffer page = oldPages.get(pageIndex);
+            int offset = 0;
+            while (offset < oldUsed[pageIndex]) {
+                int length = recordLength(page, offset);
+                if (page.get(offset) == LIVE) {
+                    movies.add(decode(page, offset));
+                    if (movies.size() == 1024) {
+                        movies.forEach(this::insert);
+                        movies.clear();
+                    }
+                }
+                offset += length;
+            }
+            oldPages.set(pageIndex, null);
+        }
+        movies.forEach(this::insert);
+    }
+
+    private Iterator<Long> liveAddresses() {
+        return new Iterator<>() {
+            private int pageIndex;
+            private int offset;
+            private long nextAddress = advance();
+
+            private long advance() {
+                while (pageIndex < pages.size()) {
+                    ByteBuffer page = pages.get(pageIndex);
+                    while (offset < pageUsed[pageIndex]) {
+                        int current = offset;
+                        offset += recordLength(page, current);
+                        if (page.get(current) == LIVE) {
+                            return ((long) pageIndex << 32) | current;
+                        }
+                    }
+                    pageIndex++;
+                    offset = 0;
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextAddress >= 0;
+            }
+
+            @Override
+            public Long next() {
+                if (nextAddress < 0) {
+                    throw new NoSuchElementException();
+                }
+                long address = nextAddress;
+                nextAddress = advance();
+                return address;
+            }
+        };
+    }
+
+    /**
+     * Шукає комірку живого запису з такою назвою.
+     *
+     * @return номер комірки або -1
+     */
+    private long findSlot(byte[] title, int hash) {
+        long mask = capacity - 1;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            ByteBuffer chunk = chunk(slot);
+            int offset = slotOffset(slot);
+            long stored = chunk.getLong(offset + 8);
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored != DELETED && chunk.getInt(offset) == hash && titleEquals(stored - 1, title)) {
+                return slot;
+            }
+        }
+    }
+
+    private void putSlot(int hash, long address) {
+        long mask = capacity - 1;
+        long slot = hash & mask;
+        while (chunk(slot).getLong(slotOffset(slot) + 8) != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        chunk(slot).putInt(slotOffset(slot), hash);
+        chunk(slot).putLong(slotOffset(slot) + 8, address + 1);
+    }
+
+    private long addressAt(long slot) {
+        return chunk(slot).getLong(slotOffset(slot) + 8) - 1;
+    }
+
+    private void rehash(long newCapacity) {
+        ByteBuffer[] oldTable = table;
+        allocateTable(newCapacity);
+        deletedSlots = 0;
+        for (ByteBuffer oldChunk : oldTable) {
+            for (int offset = 0; offset < oldChunk.capacity(); offset += SLOT_SIZE) {
+                long stored = oldChunk.getLong(offset + 8);
+                if (stored != EMPTY && stored != DELETED) {
+                    putSlot(oldChunk.getInt(offset), stored - 1);
+                }
+            }
+        }
+    }
+
+    private void allocateTable(long newCapacity) {
+        long chunkSlots = 1L << tableChunkShift;
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((newCapacity + chunkSlots - 1) >>> tableChunkShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            int slots = (int) Math.min(chunkSlots, newCapacity - i * chunkSlots);
+            chunks[i] = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+        }
+        this.capacity = newCapacity;
+        this.table = chunks;
+    }
+
+    private ByteBuffer chunk(long slot) {
+        return table[(int) (slot >>> tableChunkShift)];
+    }
+
+    private int slotOffset(long slot) {
+        return (int) (slot & ((1L << tableChunkShift) - 1)) * SLOT_SIZE;
+    }
+
+    /**
+     * Найменша степінь двійки, за якої таблиця заповнена не більше ніж наполовину.
+     *
+     * @param entries кількість записів
+     * @return кількість комірок таблиці
+     */
+    static long tableCapacityFor(long entries) {
+        long needed = Math.max(16, entries * 2);
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private boolean titleEquals(long address, byte[] title) {
+        ByteBuffer page = pages.get(page(address));
+        int offset = offset(address) + 1;
+        if (page.getInt(offset) != title.length) {
+            return false;
+        }
+        offset += Integer.BYTES;
+        for (int i = 0; i < title.length; i++) {
+            if (page.get(offset + i) != title[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BoxOfficeGuideForMovies.MovieData decode(long address) {
+        return decode(pages.get(page(address)), offset(address));
+    }
+
+    private static BoxOfficeGuideForMovies.MovieData decode(ByteBuffer page, int offset) {
+        int position = offset + 1;
+        String title = getString(page, position);
+        position += Integer.BYTES + Math.max(0, page.getInt(position));
+        String director = getString(page, position);
+        position += Integer.BYTES + Math.max(0, page.getInt(position));
+        String genre = getString(page, position);
+        position += Integer.BYTES + Math.max(0, page.getInt(position));
+        return new BoxOfficeGuideForMovies.MovieData(title, director, genre, page.getInt(position),
+                page.getDouble(position + Integer.BYTES));
+    }
+
+    private static int recordLength(ByteBuffer page, int offset) {
+        int position = offset + 1;
+        for (int field = 0; field < 3; field++) {
+            position += Integer.BYTES + Math.max(0, page.getInt(position));
+        }
+        return position + Integer.BYTES + Double.BYTES - offset;
+    }
+
+    private static String getString(ByteBuffer page, int position) {
+        int length = page.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        page.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer page, byte[] bytes) {
+        if (bytes == null) {
+            page.putInt(-1);
+        } else {
+            page.putInt(bytes.length);
+            page.put(bytes);
+        }
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static byte[] titleBytes(String title) {
+        return title.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] nullableBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String title) {
+        int h = title.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int page(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Знімок метрик однієї операції керівництва.
+ *
+ * @param count      кількість викликів
+ * @param failures   кількість викликів, що завершилися помилкою вводу-виводу
+ * @param totalNanos сумарна тривалість викликів у наносекундах
+ * @param p50Nanos   медіана тривалості виклику
+ * @param p99Nanos   99-й перцентиль тривалості виклику
+ * @param p999Nanos  99.9-й перцентиль тривалості виклику
+ * @param maxNanos   найбільша тривалість виклику
+ */
+public record OperationStats(long count, long failures, long totalNanos, long p50Nanos, long p99Nanos,
+        long p999Nanos, long maxNanos) {
+    /**
+     * @return середня тривалість виклику в наносекундах або 0, якщо викликів не було
+     */
+    public double meanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+}
@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Паралельно розбирає файл у форматі saveToFile. Файл ділиться на фрагменти
+ * по межах рядків, фрагменти декодуються й розбираються в пулі fork-join, а
+ * розібрані рядки і надгробки передаються обробникам у потоці виклику строго
+ * в порядку файлу, тож повторювані назви і надгробки обробляються так само,
+ * як під час послідовного читання. Одночасно в роботі не більше двох фрагментів
+ * на потік пулу, тому пам'ять під розібрані рядки обмежена.
+ */
+final class ParallelMovieLoader {
+    /** Найменший розмір фрагмента в байтах. */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    /** Найбільший розмір фрагмента в байтах. */
+    private static final long MAX_CHUNK_SIZE = 64 << 20;
+
+    /** Розмір блоку читання під час пошуку кінця рядка. */
+    private static final int SCAN_BLOCK_SIZE = 8 * 1024;
+
+    private ParallelMovieLoader() {
+    }
+
+    /**
+     * Підсумок завантаження.
+     *
+     * @param rowsParsed   кількість розібраних рядків фільмів
+     * @param rowsRejected кількість рядків з неправильною кількістю полів
+     */
+    record Result(long rowsParsed, long rowsRejected) {
+    }
+
+    /**
+     * Розібрані рядки фрагмента: MovieData для кожного рядка фільму і String
+     * для кожного надгробка, у порядку файлу, та кількість відхилених рядків.
+     */
+    private record Chunk(List<Object> rows, long rowsRejected) {
+    }
+
+    /**
+     * Розбирає файл і передає його рядки та надгробки обробникам у порядку файлу.
+     *
+     * @param file             файл з фільмами
+     * @param pool             пул потоків для розбору фрагментів
+     * @param rowHandler       обробник рядків фільмів
+     * @param tombstoneHandler обробник назв із надгробків
+     * @return кількість розібраних і відхилених рядків
+     * @throws IOException якщо виникла помилка читання
+     */
+    static Result load(Path file, ForkJoinPool pool, MovieRowHandler rowHandler, Consumer<String> tombstoneHandler)
+            throws IOException {
+        Charset charset = Charset.defaultCharset();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!Arrays.equals("\n".getBytes(charset), new byte[] {'\n'})) {
+                // Без однобайтового переведення рядка межі рядків не знайти в байтах.
+                MovieCsvParser parser = new MovieCsvParser(rowHandler).onDeleted(tombstoneHandler);
+                parser.parse(Channels.newReader(channel, newDecoder(charset), -1));
+                return new Result(parser.rowsParsed(), parser.rowsRejected());
+            }
+            long size = channel.size();
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (pool.getParallelism() * 4L)));
+            int window = pool.getParallelism() * 2;
+            Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            long position = 0;
+            long rowsParsed = 0;
+            long rowsRejected = 0;
+            try {
+                while (position < size || !inFlight.isEmpty()) {
+                    while (position < size && inFlight.size() < window) {
+                        long from = position;
+                        long to = Math.min(size, position + chunkSize);
+                        inFlight.add(pool.submit(() -> parseChunk(channel, from, to, size, charset)));
+                        position = to;
+                    }
+                    Chunk chunk = join(inFlight.poll());
+                    rowsRejected += chunk.rowsRejected();
+                    for (Object row : chunk.rows()) {
+                        if (row instanceof String title) {
+                            tombstoneHandler.accept(title);
+                        } else {
+                            rowsParsed++;
+                            BoxOfficeGuideForMovies.MovieData movie = (BoxOfficeGuideForMovies.MovieData) row;
+                            rowHandler.row(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                                    movie.boxOfficeEarnings());
+                        }
+                    }
+                }
+            } finally {
+                inFlight.forEach(task -> task.cancel(false));
+            }
+            return new Result(rowsParsed, rowsRejected);
+        }
+    }
+
+    /**
+     * Розбирає рядки, які починаються в проміжку байтів [from, to).
+     */
+    private static Chunk parseChunk(FileChannel channel, long from, long to, long size, Charset charset)
+            throws IOException {
+        long start = from == 0 ? 0 : lineStartAtOrAfter(channel, from, size);
+        if (start >= to) {
+            return new Chunk(List.of(), 0);
+        }
+        long end = lineStartAtOrAfter(channel, to, size);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+        bytes.flip();
+        CharBuffer chars = newDecoder(charset).decode(bytes);
+
+        List<Object> rows = new ArrayList<>();
+        MovieCsvParser parser = new MovieCsvParser((title, director, genre, yearReleased, boxOfficeEarnings) -> rows
+                .add(new BoxOfficeGuideForMovies.MovieData(title, director, genre, yearReleased, boxOfficeEarnings)))
+                .onDeleted(rows::add);
+        parser.parse(chars.array(), chars.arrayOffset() + chars.position(), chars.arrayOffset() + chars.limit(), true);
+        return new Chunk(rows, parser.rowsRejected());
+    }
+
+    /**
+     * Знаходить першу позицію не меншу за position, з якої починається рядок.
+     */
+    private static long lineStartAtOrAfter(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        long blockStart = position - 1;
+        while (blockStart < size) {
+            block.clear();
+            int read = channel.read(block, blockStart);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockStart += read;
+        }
+        return size;
+    }
+
+    private static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static Chunk join(ForkJoinTask<Chunk> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading movies");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
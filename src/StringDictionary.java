@@ -0,0 +1,84 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словник рядків: кожному різному рядку відповідає один екземпляр і щільний
+ * цілочисельний код 0, 1, 2, ... Код null - NULL_CODE. Коди не звільняються,
+ * тож словник росте до кількості різних рядків, які будь-коли кодувалися.
+ * Читання не блокуються; додавання нових рядків синхронізоване.
+ */
+final class StringDictionary {
+    /** Код значення null. */
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Повертає код рядка, за потреби додаючи рядок до словника.
+     *
+     * @param value рядок або null
+     * @return код рядка
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    /**
+     * Повертає код рядка, не додаючи його до словника.
+     *
+     * @param value рядок або null
+     * @return код рядка або null, якщо рядка немає в словнику
+     */
+    Integer codeOf(String value) {
+        return value == null ? Integer.valueOf(NULL_CODE) : codes.get(value);
+    }
+
+    /**
+     * Повертає єдиний екземпляр рівного рядка зі словника, за потреби додаючи його.
+     *
+     * @param value рядок або null
+     * @return екземпляр рядка зі словника
+     */
+    String intern(String value) {
+        return decode(encode(value));
+    }
+
+    /**
+     * @param code код рядка
+     * @return рядок із цим кодом
+     */
+    String decode(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    /**
+     * @return кількість різних рядків у словнику
+     */
+    int size() {
+        return codes.size();
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        // Спочатку публікується масив зі значенням, і лише потім код,
+        // щоб кожен, хто побачив код, міг його розкодувати.
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+}
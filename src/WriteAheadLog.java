@@ -0,0 +1,541 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал попереднього запису (write-ahead log) для стійкого режиму керівництва.
+ * <p>
+ * Каталог журналу містить сегменти wal-N.log і знімки snapshot-N.bin. Знімок
+ * snapshot-N.bin містить стан керівництва перед першим записом сегмента wal-N.log,
+ * тож відновлення читає останній знімок і повторює сегменти з номером не меншим за N.
+ * <p>
+ * Запис сегмента: довжина даних (int), контрольна сума CRC32C даних (int), дані:
+ * тип (byte: 1 - додавання, 2 - видалення), назва, для додавання також режисер
+ * і жанр (довжина int, -1 для null, плюс байти UTF-8), рік (int) і касові збори (double).
+ * Запис пакета (тип 3) містить кількість фільмів (int) і дані додавання кожного з них
+ * без байта типу; пакет відновлюється лише цілим.
+ * Обірваний чи пошкоджений запис у кінці сегмента (збій під час запису) відкидається.
+ * Сегмент читається потоково через буфер сталого розміру; більший буфер виділяється
+ * лише для окремого запису, який у нього не вміщується.
+ * <p>
+ * Групова фіксація: записи накопичуються в буфері; перший потік, який чекає
+ * на стійкість свого запису, стає ведучим - записує весь накопичений буфер і
+ * викликає fsync один раз за всіх, хто встиг дописати свої записи.
+ */
+final class WriteAheadLog {
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte BATCH = 3;
+
+    /** Розмір заголовка запису: довжина і контрольна сума. */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /** Початковий розмір буфера накопичених записів і розмір буфера читання сегмента. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Найбільша довжина даних одного запису. */
+    private static final int MAX_RECORD_SIZE = 1 << 30;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean syncing;
+    private IOException failure;
+    private boolean closed;
+
+    private WriteAheadLog(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+    }
+
+    /**
+     * Відновлює стан з каталогу журналу і відкриває новий сегмент для запису.
+     *
+     * @param directory     каталог журналу; створюється, якщо його немає
+     * @param addHandler    обробник доданих фільмів зі знімка і журналу
+     * @param removeHandler обробник назв видалених фільмів з журналу
+     * @return відкритий журнал
+     * @throws IOException якщо знімок пошкоджений або виникла помилка читання
+     */
+    static WriteAheadLog recover(Path directory, MovieRowHandler addHandler, Consumer<String> removeHandler)
+            throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Long segmentNumber = numberOf(name, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                Long snapshotNumber = numberOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                if (segmentNumber != null) {
+                    segments.put(segmentNumber, file);
+                } else if (snapshotNumber != null) {
+                    snapshots.put(snapshotNumber, file);
+                }
+            }
+        }
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            first = snapshots.lastKey();
+            MovieSnapshotReader.read(snapshots.lastEntry().getValue(), addHandler);
+        }
+        for (Path file : segments.tailMap(first, true).values()) {
+            replay(file, addHandler, removeHandler);
+        }
+        long next = Math.max(first, segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        return new WriteAheadLog(directory, next);
+    }
+
+    /**
+     * Дописує до буфера запис про додавання фільму. Викликається під блокуванням
+     * смуги фільму, тож записи одного фільму йдуть у порядку змін.
+     *
+     * @return номер запису для awaitDurable
+     */
+    long logAdd(BoxOfficeGuideForMovies.MovieData movie) {
+        byte[][] strings = stringsOf(List.of(movie));
+        int length = 1 + movieLength(strings, 0);
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(length);
+            int start = buffer.position();
+            buffer.put(ADD);
+            putMovie(buffer, strings, 0, movie);
+            return seal(buffer, start, length);
+        }
+    }
+
+    /**
+     * Дописує до буфера один запис про додавання пакета фільмів. Пакет потрапляє
+     * на диск і відновлюється цілим: обірваний запис пакета відкидається повністю.
+     *
+     * @return номер запису для awaitDurable
+     * @throws IllegalArgumentException якщо пакет не вміщується в один запис
+     */
+    long logAddAll(Collection<BoxOfficeGuideForMovies.MovieData> movies) {
+        byte[][] strings = stringsOf(movies);
+        long length = 1 + Integer.BYTES;
+        for (int i = 0; i < strings.length; i += 3) {
+            length += movieLength(strings, i);
+        }
+        if (length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Batch is too large for the write-ahead log");
+        }
+        synchronized (lock) {
+            ByteBuffer buffer = reserve((int) length);
+            int start = buffer.position();
+            buffer.put(BATCH).putInt(movies.size());
+            int i = 0;
+            for (BoxOfficeGuideForMovies.MovieData movie : movies) {
+                putMovie(buffer, strings, i, movie);
+                i += 3;
+            }
+            return seal(buffer, start, (int) length);
+        }
+    }
+
+    /**
+     * Дописує до буфера запис про видалення фільму.
+     *
+     * @return номер запису для awaitDurable
+     */
+    long logRemove(String title) {
+        byte[] bytes = bytesOf(title);
+        int length = 1 + lengthOf(bytes);
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(length);
+            int start = buffer.position();
+            buffer.put(REMOVE);
+            putBytes(buffer, bytes);
+            return seal(buffer, start, length);
+        }
+    }
+
+    /**
+     * Чекає, доки запис із заданим номером не буде записано на диск.
+     *
+     * @param lsn номер запису
+     * @throws IOException якщо записати журнал не вдалося
+     */
+    void awaitDurable(long lsn) throws IOException {
+        ByteBuffer batch;
+        long batchLsn;
+        synchronized (lock) {
+            while (true) {
+                if (durableLsn >= lsn) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new IOException("Write-ahead log is unavailable", failure);
+                }
+                if (!syncing) {
+                    break;
+                }
+                waitForSync();
+            }
+            syncing = true;
+            batch = pending;
+            batchLsn = appendedLsn;
+            pending = spare;
+            spare = null;
+        }
+        IOException error = null;
+        try {
+            write(batch);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (lock) {
+            syncing = false;
+            batch.clear();
+            spare = batch;
+            if (error == null) {
+                durableLsn = batchLsn;
+            } else {
+                failure = error;
+            }
+            lock.notifyAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Записує накопичені записи в поточний сегмент і починає новий. Викликається,
+     * коли зміни керівництва заблоковані, тож стан керівництва відповідає кінцю
+     * закритого сегмента.
+     *
+     * @return номер нового сегмента, під яким слід зберегти знімок
+     * @throws IOException якщо виникла помилка запису
+     */
+    long rotate() throws IOException {
+        synchronized (lock) {
+            ensureUsable();
+            while (syncing) {
+                waitForSync();
+            }
+            try {
+                write(pending);
+                pending.clear();
+                durableLsn = appendedLsn;
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                lock.notifyAll();
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Стійко зберігає знімок стану на початок сегмента і видаляє старіші знімки й сегменти.
+     *
+     * @param snapshotSegment номер сегмента, який повернув rotate()
+     * @param movies          фільми керівництва на момент rotate()
+     * @throws IOException якщо виникла помилка запису
+     */
+    void writeSnapshot(long snapshotSegment, Iterable<BoxOfficeGuideForMovies.MovieData> movies) throws IOException {
+        Path target = directory.resolve(SNAPSHOT_PREFIX + snapshotSegment + SNAPSHOT_SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (MovieSnapshotWriter writer = new MovieSnapshotWriter(temp)) {
+            for (BoxOfficeGuideForMovies.MovieData movie : movies) {
+                writer.write(movie.title(), movie.director(), movie.genre(), movie.yearReleased(),
+                        movie.boxOfficeEarnings());
+            }
+            writer.sync();
+        }
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Long segmentNumber = numberOf(name, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                Long snapshotNumber = numberOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                if ((segmentNumber != null && segmentNumber < snapshotSegment)
+                        || (snapshotNumber != null && snapshotNumber < snapshotSegment)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Записує накопичені записи і закриває журнал.
+     *
+     * @throws IOException якщо виникла помилка запису
+     */
+    void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            while (syncing) {
+                waitForSync();
+            }
+            try {
+                if (failure == null) {
+                    write(pending);
+                    pending.clear();
+                    durableLsn = appendedLsn;
+                }
+            } finally {
+                closed = true;
+                failure = failure != null ? failure : new IOException("Write-ahead log is closed");
+                channel.close();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private ByteBuffer reserve(int length) {
+        if (failure != null || closed) {
+            throw new IllegalStateException("Write-ahead log is unavailable", failure);
+        }
+        if (pending.remaining() < HEADER_SIZE + length) {
+            long required = (long) pending.position() + HEADER_SIZE + length;
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Write-ahead log buffer is full");
+            }
+            ByteBuffer larger = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(2L * pending.capacity(), required)));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        pending.position(pending.position() + HEADER_SIZE);
+        return pending;
+    }
+
+    private long seal(ByteBuffer buffer, int start, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), start, length);
+        buffer.putInt(start - HEADER_SIZE, length).putInt(start - HEADER_SIZE + Integer.BYTES, (int) crc.getValue());
+        return ++appendedLsn;
+    }
+
+    private void write(ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        channel.force(false);
+    }
+
+    private void ensureUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log is unavailable", failure);
+        }
+    }
+
+    private void waitForSync() throws IOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the write-ahead log", e);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory();
+        return segmentChannel;
+    }
+
+    /**
+     * Робить стійким створення чи перейменування файлів каталогу, якщо система це дозволяє.
+     */
+    private void syncDirectory() {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // Не всі системи дозволяють fsync каталогу; тоді покладаємося на файлову систему.
+        }
+    }
+
+    /**
+     * Повторює записи сегмента до кінця файлу чи першого обірваного або пошкодженого запису.
+     */
+    private static void replay(Path file, MovieRowHandler addHandler, Consumer<String> removeHandler)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE).flip();
+            CRC32C crc = new CRC32C();
+            while (fill(in, data, HEADER_SIZE)) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining() + in.size() - in.position()) {
+                    return;
+                }
+                ByteBuffer record;
+                if (length <= data.capacity()) {
+                    if (!fill(in, data, length)) {
+                        return;
+                    }
+                    record = data.slice(data.position(), length);
+                    data.position(data.position() + length);
+                } else {
+                    record = ByteBuffer.allocate(length).put(data);
+                    while (record.hasRemaining()) {
+                        if (in.read(record) < 0) {
+                            return;
+                        }
+                    }
+                    record.flip();
+                }
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum || !apply(record, addHandler, removeHandler)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Дочитує сегмент, доки в буфері не буде щонайменше count непрочитаних байтів.
+     *
+     * @return false, якщо сегмент закінчився раніше
+     */
+    private static boolean fill(FileChannel in, ByteBuffer data, int count) throws IOException {
+        if (data.remaining() >= count) {
+            return true;
+        }
+        data.compact();
+        while (data.position() < count) {
+            if (in.read(data) < 0) {
+                break;
+            }
+        }
+        data.flip();
+        return data.remaining() >= count;
+    }
+
+    /**
+     * Передає обробникам зміни з перевіреного запису.
+     *
+     * @return false, якщо тип запису невідомий
+     */
+    private static boolean apply(ByteBuffer record, MovieRowHandler addHandler, Consumer<String> removeHandler) {
+        byte type = record.get();
+        if (type == ADD) {
+            applyAdd(record, addHandler);
+        } else if (type == REMOVE) {
+            removeHandler.accept(getString(record));
+        } else if (type == BATCH) {
+            for (int count = record.getInt(); count > 0; count--) {
+                applyAdd(record, addHandler);
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void applyAdd(ByteBuffer record, MovieRowHandler addHandler) {
+        String title = getString(record);
+        String director = getString(record);
+        String genre = getString(record);
+        addHandler.row(title, director, genre, record.getInt(), record.getDouble());
+    }
+
+    private static Long numberOf(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Кодує назву, режисера і жанр кожного фільму: по три елементи на фільм.
+     */
+    private static byte[][] stringsOf(Collection<BoxOfficeGuideForMovies.MovieData> movies) {
+        byte[][] strings = new byte[3 * movies.size()][];
+        int i = 0;
+        for (BoxOfficeGuideForMovies.MovieData movie : movies) {
+            strings[i++] = bytesOf(movie.title());
+            strings[i++] = bytesOf(movie.director());
+            strings[i++] = bytesOf(movie.genre());
+        }
+        return strings;
+    }
+
+    private static int movieLength(byte[][] strings, int from) {
+        return lengthOf(strings[from]) + lengthOf(strings[from + 1]) + lengthOf(strings[from + 2]) + Integer.BYTES
+                + Double.BYTES;
+    }
+
+    private static void putMovie(ByteBuffer buffer, byte[][] strings, int from,
+            BoxOfficeGuideForMovies.MovieData movie) {
+        putBytes(buffer, strings[from]);
+        putBytes(buffer, strings[from + 1]);
+        putBytes(buffer, strings[from + 2]);
+        buffer.putInt(movie.yearReleased()).putDouble(movie.boxOfficeEarnings());
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
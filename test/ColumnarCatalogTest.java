@@ -0,0 +1,84 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Перевіряє, що стовпцевий режим (BoxOfficeGuideForMovies.columnar) повертає
+ * ті самі результати, що й звичайне керівництво, після випадкових додавань
+ * і видалень, зокрема після ущільнення стовпців.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out ColumnarCatalogTest
+ */
+public class ColumnarCatalogTest {
+    public static void main(String[] args) {
+        BoxOfficeGuideForMovies expected = new BoxOfficeGuideForMovies();
+        BoxOfficeGuideForMovies columnar = BoxOfficeGuideForMovies.columnar(0);
+        Random random = new Random(42);
+        for (int step = 0; step < 20_000; step++) {
+            String title = "Movie " + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                check(equal(expected.removeMovieIfPresent(title), columnar.removeMovieIfPresent(title)),
+                        "removeMovieIfPresent(" + title + ")");
+            } else {
+                String director = random.nextInt(10) == 0 ? null : "Director " + random.nextInt(50);
+                String genre = "Genre " + random.nextInt(8);
+                int year = 1990 + random.nextInt(30);
+                double earnings = random.nextInt(1000) * 1e5;
+                check(expected.addMovieIfAbsent(title, director, genre, year, earnings)
+                        == columnar.addMovieIfAbsent(title, director, genre, year, earnings),
+                        "addMovieIfAbsent(" + title + ")");
+            }
+        }
+        // Ущільнення: видалення більшої частини фільмів зсуває рядки стовпців.
+        for (int i = 0; i < 4_500; i++) {
+            expected.removeMovieIfPresent("Movie " + i);
+            columnar.removeMovieIfPresent("Movie " + i);
+        }
+
+        check(expected.getAllMoviesSortedByBoxOfficeEarnings()
+                .equals(columnar.getAllMoviesSortedByBoxOfficeEarnings()), "ranking");
+        check(expected.findMovieByTitle("Movie 4999") == null ? columnar.findMovieByTitle("Movie 4999") == null
+                : expected.findMovieByTitle("Movie 4999").equals(columnar.findMovieByTitle("Movie 4999")),
+                "findMovieByTitle");
+        check(sameMovies(expected.findMoviesByDirector("Director 7"), columnar.findMoviesByDirector("Director 7")),
+                "findMoviesByDirector");
+        check(sameMovies(expected.findMoviesByDirector(null), columnar.findMoviesByDirector(null)),
+                "findMoviesByDirector(null)");
+        check(sameMovies(expected.findMoviesByGenre("Genre 3"), columnar.findMoviesByGenre("Genre 3")),
+                "findMoviesByGenre");
+        check(sameMovies(expected.findMoviesByYear(2000), columnar.findMoviesByYear(2000)), "findMoviesByYear");
+        check(columnar.findMoviesByDirector("Nobody").isEmpty(), "findMoviesByDirector(unknown)");
+        check(expected.findMoviesReleasedBetween(1995, 2005).stream().map(BoxOfficeGuideForMovies.MovieData::title)
+                .sorted().toList().equals(columnar.findMoviesReleasedBetween(1995, 2005).stream()
+                        .map(BoxOfficeGuideForMovies.MovieData::title).sorted().toList()),
+                "findMoviesReleasedBetween");
+        check(expected.earningsStatsByGenre().equals(columnar.earningsStatsByGenre()), "earningsStatsByGenre");
+        check(expected.earningsStatsByDirector().equals(columnar.earningsStatsByDirector()),
+                "earningsStatsByDirector");
+        check(expected.earningsStatsByYear().equals(columnar.earningsStatsByYear()), "earningsStatsByYear");
+        check(expected.query().genre("Genre 1").earningsAtLeast(5e7).orderByEarnings().limit(10).list()
+                .equals(columnar.query().genre("Genre 1").earningsAtLeast(5e7).orderByEarnings().limit(10).list()),
+                "query");
+
+        ColumnarMovieStore store = columnar.toColumnar();
+        check(store.size() == expected.getAllMoviesSortedByBoxOfficeEarnings().size(), "toColumnar size");
+        check(store.totalEarningsByGenre().equals(expected.toColumnar().totalEarningsByGenre()),
+                "toColumnar totals");
+        System.out.println("ColumnarCatalogTest: OK");
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static boolean sameMovies(Collection<BoxOfficeGuideForMovies.MovieData> a,
+            Collection<BoxOfficeGuideForMovies.MovieData> b) {
+        return a.size() == b.size() && List.copyOf(a).containsAll(b);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Регресійні перевірки статистики касових зборів груп після видалення фільмів
+ * з NaN і нескінченними зборами.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out EarningsStatsTest
+ */
+public class EarningsStatsTest {
+    public static void main(String[] args) {
+        check("default", new BoxOfficeGuideForMovies());
+        check("concurrent", BoxOfficeGuideForMovies.concurrent(true));
+        System.out.println("EarningsStatsTest: OK");
+    }
+
+    private static void check(String mode, BoxOfficeGuideForMovies catalog) {
+        catalog.addMovie("A", "Director", "Drama", 2001, 10);
+        catalog.addMovie("B", "Director", "Drama", 2002, Double.NaN);
+        catalog.addMovie("C", "Director", "Drama", 2003, 30);
+        catalog.removeMovie("B");
+        expect(mode, "after removing NaN", catalog.earningsStatsByGenre().get("Drama"), 2, 40, 10, 30);
+        expect(mode, "director after removing NaN", catalog.earningsStatsByDirector().get("Director"), 2, 40, 10, 30);
+
+        catalog.addMovie("D", "Director", "Drama", 2004, Double.POSITIVE_INFINITY);
+        catalog.addMovie("E", "Director", "Drama", 2005, 20);
+        catalog.removeMovie("D");
+        expect(mode, "after removing infinity", catalog.earningsStatsByGenre().get("Drama"), 3, 60, 10, 30);
+
+        catalog.addMovie("F", "Director", "Drama", 2006, Double.NaN);
+        catalog.removeMovie("E");
+        EarningsStats withNaN = catalog.earningsStatsByGenre().get("Drama");
+        check(withNaN.count() == 3 && Double.isNaN(withNaN.sum()), mode + ": NaN row still counts");
+        catalog.removeMovie("F");
+        expect(mode, "after removing the last NaN", catalog.earningsStatsByGenre().get("Drama"), 2, 40, 10, 30);
+    }
+
+    private static void expect(String mode, String name, EarningsStats stats, long count, double sum, double min,
+            double max) {
+        check(stats != null && stats.count() == count && stats.sum() == sum && stats.min() == min
+                && stats.max() == max, mode + ": " + name + ": " + stats);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
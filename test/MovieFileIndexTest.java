@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Регресійні перевірки збереженого індексу назв (файл ".idx"): обірваний чи
+ * пошкоджений файл індексу перебудовується, а не ламає пошук у файлі.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out MovieFileIndexTest
+ */
+public class MovieFileIndexTest {
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("file-index-test");
+        try {
+            truncatedSidecarIsRebuilt(directory.resolve("truncated.txt").toString());
+            corruptSidecarIsRebuilt(directory.resolve("corrupt.txt").toString());
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+        System.out.println("MovieFileIndexTest: OK");
+    }
+
+    private static void truncatedSidecarIsRebuilt(String filename) throws IOException {
+        BoxOfficeGuideForMovies catalog = catalogWithMovies();
+        catalog.saveToFile(filename);
+        check(indexedCatalog().findMovieByTitleFromFile(filename, "T5") != null, "lookup through a new index");
+        Path sidecar = MovieFileIndex.sidecarOf(filename);
+        long fullSize = Files.size(sidecar);
+        check(fullSize > 0, "index saved next to the data file");
+
+        // Запис індексу перервано на половині: заголовок відповідає файлу даних, тіло обірване.
+        try (RandomAccessFile file = new RandomAccessFile(sidecar.toFile(), "rw")) {
+            file.setLength(fullSize / 2);
+        }
+        for (int i = 0; i < 2; i++) {
+            BoxOfficeGuideForMovies.MovieData movie = indexedCatalog().findMovieByTitleFromFile(filename, "T5");
+            check(movie != null && movie.yearReleased() == 2005, "lookup with a truncated index, attempt " + i);
+        }
+        check(Files.size(sidecar) == fullSize, "truncated index rebuilt");
+        try (var files = Files.list(sidecar.getParent())) {
+            check(files.noneMatch(file -> file.toString().endsWith(".tmp")), "no temporary index files left");
+        }
+    }
+
+    private static void corruptSidecarIsRebuilt(String filename) throws IOException {
+        BoxOfficeGuideForMovies catalog = catalogWithMovies();
+        catalog.saveToFile(filename);
+        check(indexedCatalog().findMovieByTitleFromFile(filename, "T7") != null, "lookup through a new index");
+        Path sidecar = MovieFileIndex.sidecarOf(filename);
+
+        // Кількість записів і довжина першої назви зіпсовані.
+        try (RandomAccessFile file = new RandomAccessFile(sidecar.toFile(), "rw")) {
+            file.seek(2 * Integer.BYTES + 2 * Long.BYTES);
+            file.writeInt(Integer.MAX_VALUE);
+            file.writeInt(-5);
+        }
+        BoxOfficeGuideForMovies.MovieData movie = indexedCatalog().findMovieByTitleFromFile(filename, "T7");
+        check(movie != null && movie.yearReleased() == 2007, "lookup with a corrupt index");
+    }
+
+    private static BoxOfficeGuideForMovies catalogWithMovies() {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        for (int i = 0; i < 50; i++) {
+            catalog.addMovie("T" + i, "Director " + i % 5, "Genre " + i % 3, 2000 + i, i * 100.0);
+        }
+        return catalog;
+    }
+
+    private static BoxOfficeGuideForMovies indexedCatalog() {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        catalog.setFileIndexEnabled(true);
+        return catalog;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Регресійні перевірки надгробків у файлах з фільмами: фільм, назва якого
+ * збігається з колишнім початком надгробка "#deleted", не повинен зникати.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out MovieFileTombstoneTest
+ */
+public class MovieFileTombstoneTest {
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("tombstone-test");
+        try {
+            titleLikeTombstoneSurvivesRoundTrip(directory.resolve("round-trip.txt").toString());
+            titleLikeTombstoneSurvivesCompaction(directory.resolve("compaction.txt").toString());
+            titleLikeTombstoneIsIndexed(directory.resolve("indexed.txt").toString());
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+        System.out.println("MovieFileTombstoneTest: OK");
+    }
+
+    private static void titleLikeTombstoneSurvivesRoundTrip(String filename) {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        catalog.addMovie("#deleted", "Director", "Drama", 2001, 100);
+        catalog.addMovie("Other", "Director", "Drama", 2002, 200);
+        catalog.saveToFile(filename);
+
+        BoxOfficeGuideForMovies loaded = new BoxOfficeGuideForMovies();
+        loaded.loadFromFile(filename);
+        check(loaded.findMovieByTitle("#deleted") != null, "movie titled #deleted lost after loadFromFile");
+        check(loaded.findMovieByTitle("Other") != null, "movie after #deleted lost after loadFromFile");
+        check(loaded.findMovieByTitleFromFile(filename, "#deleted") != null,
+                "movie titled #deleted not found in file");
+    }
+
+    private static void titleLikeTombstoneSurvivesCompaction(String filename) {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        catalog.setTombstoneDeletes(true);
+        catalog.addMovieToFile(filename, "#deleted", "Director", "Drama", 2001, 100);
+        catalog.addMovieToFile(filename, "Other", "Director", "Drama", 2002, 200);
+        catalog.removeMovieFromFile(filename, "Other");
+        catalog.compactFile(filename);
+        check(catalog.findMovieByTitleFromFile(filename, "#deleted") != null,
+                "movie titled #deleted lost after compaction");
+        check(catalog.findMovieByTitleFromFile(filename, "Other") == null, "removed movie present after compaction");
+
+        catalog.removeMovieFromFile(filename, "#deleted");
+        check(catalog.findMovieByTitleFromFile(filename, "#deleted") == null, "movie titled #deleted not removed");
+    }
+
+    private static void titleLikeTombstoneIsIndexed(String filename) {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        catalog.addMovie("#deleted", "Director", "Drama", 2001, 100);
+        catalog.saveToFile(filename);
+        catalog.setFileIndexEnabled(true);
+        check(catalog.findMovieByTitleFromFile(filename, "#deleted") != null,
+                "movie titled #deleted not found through the file index");
+        catalog.setTombstoneDeletes(true);
+        catalog.removeMovieFromFile(filename, "#deleted");
+        check(catalog.findMovieByTitleFromFile(filename, "#deleted") == null,
+                "tombstone ignored by the file index");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Регресійні перевірки saveToJsonFile і loadFromJsonFile: порожні поля
+ * і нескінченні чи NaN касові збори записуються як null і читаються назад.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out MovieJsonRoundTripTest
+ */
+public class MovieJsonRoundTripTest {
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("json-round-trip", ".json");
+        try {
+            nullFieldsRoundTrip(file);
+            nonFiniteEarningsRoundTrip(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("MovieJsonRoundTripTest: OK");
+    }
+
+    private static void nullFieldsRoundTrip(Path file) throws IOException {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        catalog.addMovie("No director", null, "Drama", 2001, 100);
+        catalog.addMovie("No genre", "Director", null, 2002, 200);
+        catalog.saveToJsonFile(file.toString());
+        String json = Files.readString(file);
+        check(json.contains("\"director\":null") && json.contains("\"genre\":null"), "nulls not written: " + json);
+
+        BoxOfficeGuideForMovies loaded = new BoxOfficeGuideForMovies();
+        loaded.loadFromJsonFile(file.toString());
+        check(loaded.findMovieByTitle("No director").equals(catalog.findMovieByTitle("No director")),
+                "movie with null director changed: " + loaded.findMovieByTitle("No director"));
+        check(loaded.findMovieByTitle("No genre").equals(catalog.findMovieByTitle("No genre")),
+                "movie with null genre changed: " + loaded.findMovieByTitle("No genre"));
+    }
+
+    private static void nonFiniteEarningsRoundTrip(Path file) throws IOException {
+        BoxOfficeGuideForMovies catalog = new BoxOfficeGuideForMovies();
+        catalog.addMovie("Unknown", "Director", "Drama", 2001, Double.NaN);
+        catalog.addMovie("Unbounded", "Director", "Drama", 2002, Double.POSITIVE_INFINITY);
+        catalog.addMovie("Negative unbounded", "Director", "Drama", 2003, Double.NEGATIVE_INFINITY);
+        catalog.addMovie("Finite", "Director", "Drama", 2004, 1.5e9);
+        catalog.saveToJsonFile(file.toString());
+        String json = Files.readString(file);
+        check(!json.contains("NaN") && !json.contains("Infinity"), "non-finite number written: " + json);
+
+        BoxOfficeGuideForMovies loaded = new BoxOfficeGuideForMovies();
+        loaded.loadFromJsonFile(file.toString());
+        for (String title : new String[] {"Unknown", "Unbounded", "Negative unbounded"}) {
+            BoxOfficeGuideForMovies.MovieData movie = loaded.findMovieByTitle(title);
+            check(movie != null && Double.isNaN(movie.boxOfficeEarnings()), "non-finite earnings not read: " + movie);
+        }
+        check(loaded.findMovieByTitle("Finite").boxOfficeEarnings() == 1.5e9, "finite earnings changed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Перевіряє хеш-таблицю OffHeapMovieMap, розбиту на кілька прямих буферів:
+ * розрахунок місткості для каталогів понад 2^31 / 16 комірок і роботу мапи,
+ * таблиця якої займає багато буферів (на малих буферах).
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out OffHeapMovieMapTest
+ */
+public class OffHeapMovieMapTest {
+    public static void main(String[] args) {
+        capacityBeyondSingleBuffer();
+        tableSpreadOverManyBuffers();
+        System.out.println("OffHeapMovieMapTest: OK");
+    }
+
+    private static void capacityBeyondSingleBuffer() {
+        // Понад Integer.MAX_VALUE / 16 комірок таблиця не вміщується в один ByteBuffer.
+        check(OffHeapMovieMap.tableCapacityFor(34_000_000) == 1L << 27, "capacity for 34M movies");
+        check(OffHeapMovieMap.tableCapacityFor(34_000_000) > Integer.MAX_VALUE / 16, "capacity beyond one buffer");
+        check(OffHeapMovieMap.tableCapacityFor(Integer.MAX_VALUE) == 1L << 32, "capacity for Integer.MAX_VALUE");
+        check(OffHeapMovieMap.tableCapacityFor(0) == 16, "capacity for an empty map");
+    }
+
+    private static void tableSpreadOverManyBuffers() {
+        // 16 комірок на буфер: таблиця на 20 000 фільмів займає тисячі буферів
+        // і кілька разів перебудовується.
+        OffHeapMovieMap map = new OffHeapMovieMap(0, 4);
+        Map<String, BoxOfficeGuideForMovies.MovieData> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            BoxOfficeGuideForMovies.MovieData movie = new BoxOfficeGuideForMovies.MovieData("Movie " + i,
+                    i % 7 == 0 ? null : "Director " + i % 100, "Genre " + i % 10, 1950 + i % 70, i * 1000.0);
+            check(map.putIfAbsent(movie.title(), movie) == null, "putIfAbsent " + movie.title());
+            expected.put(movie.title(), movie);
+        }
+        for (int i = 0; i < 20_000; i += 3) {
+            check(map.remove("Movie " + i).equals(expected.remove("Movie " + i)), "remove Movie " + i);
+        }
+        check(map.size() == expected.size(), "size " + map.size());
+        for (BoxOfficeGuideForMovies.MovieData movie : expected.values()) {
+            check(movie.equals(map.get(movie.title())), "get " + movie.title());
+        }
+        check(map.get("Movie 0") == null && !map.containsKey("Movie 3"), "removed movies still present");
+        check(new ArrayList<>(map.values()).equals(List.copyOf(expected.values())), "insertion order");
+
+        BoxOfficeGuideForMovies catalog = BoxOfficeGuideForMovies.offHeap(50_000);
+        catalog.addMovie("Only", "Director", "Drama", 2000, 1);
+        check(catalog.findMovieByTitle("Only") != null, "offHeap catalog lookup");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
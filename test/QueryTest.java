@@ -0,0 +1,59 @@
+import java.util.List;
+
+/**
+ * Регресійні перевірки BoxOfficeGuideForMovies.Query для фільмів з
+ * нескінченними і NaN касовими зборами, з індексами і без них.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out QueryTest
+ */
+public class QueryTest {
+    public static void main(String[] args) {
+        check("default", new BoxOfficeGuideForMovies());
+        check("concurrent", BoxOfficeGuideForMovies.concurrent(true));
+        check("offHeap", BoxOfficeGuideForMovies.offHeap(16));
+        System.out.println("QueryTest: OK");
+    }
+
+    private static void check(String mode, BoxOfficeGuideForMovies catalog) {
+        catalog.addMovie("Unknown", "Director", "Drama", 2001, Double.NaN);
+        catalog.addMovie("Negative", "Director", "Drama", 2002, Double.NEGATIVE_INFINITY);
+        catalog.addMovie("Zero", "Director", "Drama", 2003, 0);
+        catalog.addMovie("Five", "Director", "Drama", 2004, 5);
+        catalog.addMovie("Large", "Director", "Drama", 2005, 1e9);
+        catalog.addMovie("Unbounded", "Director", "Drama", 2006, Double.POSITIVE_INFINITY);
+
+        expect(mode, "orderByEarnings", catalog.query().orderByEarnings().list(),
+                "Unknown", "Unbounded", "Large", "Five", "Zero", "Negative");
+        expect(mode, "no filter", sorted(catalog.query().list()),
+                "Five", "Large", "Negative", "Unbounded", "Unknown", "Zero");
+        expect(mode, "genre", sorted(catalog.query().genre("Drama").list()),
+                "Five", "Large", "Negative", "Unbounded", "Unknown", "Zero");
+        expect(mode, "earningsAtMost(5)", catalog.query().earningsAtMost(5).orderByEarnings().list(),
+                "Five", "Zero", "Negative");
+        expect(mode, "earningsBelow(0)", catalog.query().earningsBelow(0).list(), "Negative");
+        expect(mode, "earningsAtLeast(5)", catalog.query().earningsAtLeast(5).orderByEarnings().list(),
+                "Unbounded", "Large", "Five");
+        expect(mode, "earningsAbove(1e9)", catalog.query().earningsAbove(1e9).list(), "Unbounded");
+        expect(mode, "earningsAtLeast(-Infinity)",
+                catalog.query().earningsAtLeast(Double.NEGATIVE_INFINITY).orderByEarnings().list(),
+                "Unbounded", "Large", "Five", "Zero", "Negative");
+        expect(mode, "earningsBetween(0, 5)", catalog.query().earningsBetween(0, 5).orderByEarnings().list(),
+                "Five", "Zero");
+        expect(mode, "limit", catalog.query().earningsAtMost(5).orderByEarnings().limit(2).list(), "Five", "Zero");
+        expect(mode, "year and order", catalog.query().releasedBetween(2001, 2002).orderByEarnings().list(),
+                "Unknown", "Negative");
+    }
+
+    private static List<String> sorted(List<BoxOfficeGuideForMovies.MovieData> movies) {
+        return movies.stream().map(BoxOfficeGuideForMovies.MovieData::title).sorted().toList();
+    }
+
+    private static void expect(String mode, String query, List<?> actual, String... titles) {
+        List<String> actualTitles = actual.stream()
+                .map(item -> item instanceof BoxOfficeGuideForMovies.MovieData movie ? movie.title() : (String) item)
+                .toList();
+        if (!actualTitles.equals(List.of(titles))) {
+            throw new AssertionError(mode + " " + query + ": expected " + List.of(titles) + ", got " + actualTitles);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Перевіряє журнал стійкого режиму: відновлення сегмента із записом, більшим
+ * за буфер читання, відкидання обірваного запису пакета цілим і те, що пакет,
+ * який не вдалося записати до журналу, не змінює керівництва.
+ * <p>
+ * Запуск: javac -d out src/*.java test/*.java && java -cp out WriteAheadLogTest
+ */
+public class WriteAheadLogTest {
+    public static void main(String[] args) throws IOException {
+        recordLargerThanReadBuffer();
+        tornBatchDiscardedWhole();
+        batchAfterCloseAppliesNothing();
+        System.out.println("WriteAheadLogTest: OK");
+    }
+
+    private static void recordLargerThanReadBuffer() throws IOException {
+        Path directory = Files.createTempDirectory("wal-test");
+        BoxOfficeGuideForMovies catalog = BoxOfficeGuideForMovies.durable(directory.toString());
+        catalog.addMovie("Before", "Director", "Drama", 1999, 1.0);
+        // Пакет у кілька сотень кілобайтів - один запис, більший за буфер читання сегмента.
+        catalog.addMovies(movies("Large batch movie ", 5_000));
+        catalog.addMovie("After", null, "Comedy", 2001, Double.NaN);
+        catalog.removeMovie("Large batch movie 7");
+        catalog.closeWriteAheadLog();
+
+        BoxOfficeGuideForMovies recovered = BoxOfficeGuideForMovies.durable(directory.toString());
+        check(recovered.getAllMoviesSortedByBoxOfficeEarnings().size() == 5_001, "recovered movie count");
+        check(recovered.findMovieByTitle("Before") != null, "movie before the batch");
+        check(recovered.findMovieByTitle("After") != null, "movie after the batch");
+        check(recovered.findMovieByTitle("After").director() == null, "null director after the batch");
+        check(recovered.findMovieByTitle("Large batch movie 4999").yearReleased() == 1900 + 4999 % 120,
+                "last movie of the batch");
+        check(recovered.findMovieByTitle("Large batch movie 7") == null, "removed movie of the batch");
+        recovered.closeWriteAheadLog();
+        delete(directory);
+    }
+
+    private static void tornBatchDiscardedWhole() throws IOException {
+        Path directory = Files.createTempDirectory("wal-test");
+        BoxOfficeGuideForMovies catalog = BoxOfficeGuideForMovies.durable(directory.toString());
+        catalog.addMovie("Single", "Director", "Drama", 2000, 10.0);
+        catalog.addMovies(movies("Torn batch movie ", 100));
+        catalog.closeWriteAheadLog();
+
+        // Збій посеред запису пакета: кінець сегмента не дописано.
+        Path segment = directory.resolve("wal-0.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 10);
+        }
+        BoxOfficeGuideForMovies recovered = BoxOfficeGuideForMovies.durable(directory.toString());
+        check(recovered.findMovieByTitle("Single") != null, "movie before the torn batch");
+        check(recovered.getAllMoviesSortedByBoxOfficeEarnings().size() == 1, "torn batch is discarded whole");
+        recovered.closeWriteAheadLog();
+        delete(directory);
+    }
+
+    private static void batchAfterCloseAppliesNothing() throws IOException {
+        Path directory = Files.createTempDirectory("wal-test");
+        BoxOfficeGuideForMovies catalog = BoxOfficeGuideForMovies.durable(directory.toString());
+        catalog.addMovie("Existing", "Director", "Drama", 2000, 10.0);
+        catalog.closeWriteAheadLog();
+        boolean failed = false;
+        try {
+            catalog.addMovies(movies("Rejected movie ", 10));
+        } catch (IllegalStateException e) {
+            failed = true;
+        }
+        check(failed, "batch after close fails");
+        check(catalog.getAllMoviesSortedByBoxOfficeEarnings().size() == 1, "failed batch applies nothing");
+        for (int i = 0; i < 10; i++) {
+            check(catalog.findMovieByTitle("Rejected movie " + i) == null, "rejected movie " + i);
+        }
+        delete(directory);
+    }
+
+    private static List<BoxOfficeGuideForMovies.MovieData> movies(String prefix, int count) {
+        List<BoxOfficeGuideForMovies.MovieData> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            movies.add(new BoxOfficeGuideForMovies.MovieData(prefix + i, "Director " + i % 50, "Genre " + i % 8,
+                    1900 + i % 120, i * 1000.0));
+        }
+        return movies;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}